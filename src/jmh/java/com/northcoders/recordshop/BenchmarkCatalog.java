@@ -0,0 +1,74 @@
+package com.northcoders.recordshop;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.service.RecordShopService;
+import com.northcoders.recordshop.service.RecordShopServiceImpl;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Shared fixtures for the benchmarks. Catalogs come from a fixed seed so every run measures the same data.
+ */
+public class BenchmarkCatalog {
+    public static final long SEED = 42L;
+
+    private BenchmarkCatalog() {
+    }
+
+    public static List<Album> randomAlbums(int count) {
+        Random random = new Random(SEED);
+        Genre[] genres = Genre.values();
+        int artistCount = Math.max(1, count / 10);
+
+        List<Album> albums = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            albums.add(new Album(
+                    "Album " + random.nextInt(count),
+                    "Artist " + random.nextInt(artistCount),
+                    1950 + random.nextInt(75),
+                    genres[random.nextInt(genres.length)]));
+        }
+        return albums;
+    }
+
+    // Boots the application against its own in-memory H2 database, without the web server
+    public static ConfigurableApplicationContext startH2Context(String... extraArgs) {
+        return startNamedH2Context("benchmark-" + UUID.randomUUID(), extraArgs);
+    }
+
+    // The database outlives the context, so a later context started with the same name finds the same catalog
+    public static ConfigurableApplicationContext startNamedH2Context(String databaseName, String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.profiles.active=h2",
+                "--spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1",
+                "--logging.level.root=WARN"));
+        args.addAll(List.of(extraArgs));
+
+        return new SpringApplicationBuilder(RecordShopApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+    }
+
+    // Boots the full application with its web server; the caller picks the profiles and port
+    public static ConfigurableApplicationContext startWebContext(String... args) {
+        List<String> allArgs = new ArrayList<>(List.of("--logging.level.root=WARN"));
+        allArgs.addAll(List.of(args));
+
+        return new SpringApplicationBuilder(RecordShopApiApplication.class)
+                .run(allArgs.toArray(new String[0]));
+    }
+
+    public static void seed(RecordShopService recordShopService, int count) {
+        List<Album> albums = randomAlbums(count);
+        for (int from = 0; from < count; from += RecordShopServiceImpl.MAX_BATCH_SIZE) {
+            recordShopService.insertNewAlbums(albums.subList(from, Math.min(count, from + RecordShopServiceImpl.MAX_BATCH_SIZE)));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.northcoders.recordshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.northcoders.recordshop.BenchmarkCatalog;
+import com.northcoders.recordshop.config.AlbumProtobufWriter;
+import com.northcoders.recordshop.model.Album;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of the List<Album> bodies GET /records returns, in each format a client can ask for with Accept.
+ * The size of every body is reported next to the timings as the responseBytes counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlbumSerializationBenchmark {
+    @Param({"1000", "100000"})
+    int albumCount;
+
+    @Param({"json", "smile", "cbor", "protobuf"})
+    String format;
+
+    private ObjectMapper objectMapper;
+    private List<Album> albums;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ResponseSize {
+        public long responseBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            responseBytes = 0;
+        }
+    }
+
+    @Setup
+    public void createAlbums() {
+        albums = BenchmarkCatalog.randomAlbums(albumCount);
+        for (int i = 0; i < albums.size(); i++) {
+            albums.get(i).setId(i + 1);
+        }
+        objectMapper = switch (format) {
+            case "smile" -> new ObjectMapper(new SmileFactory());
+            case "cbor" -> new ObjectMapper(new CBORFactory());
+            default -> new ObjectMapper();
+        };
+    }
+
+    @Benchmark
+    public byte[] serializeAlbumList(ResponseSize size) throws IOException {
+        byte[] body;
+        if (format.equals("protobuf")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            AlbumProtobufWriter.writeAlbumList(albums, out);
+            body = out.toByteArray();
+        } else {
+            body = objectMapper.writeValueAsBytes(albums);
+        }
+        // Assigned rather than added: every call produces the same body, so the counter reads as bytes per response
+        size.responseBytes = body.length;
+        return body;
+    }
+}
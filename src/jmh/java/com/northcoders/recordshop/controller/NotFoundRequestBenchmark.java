@@ -0,0 +1,57 @@
+package com.northcoders.recordshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.northcoders.recordshop.exception.GlobalExceptionHandler;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import com.northcoders.recordshop.service.CatalogVersionTracker;
+import com.northcoders.recordshop.service.RecordShopServiceImpl;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * A bot probing for ids that don't exist: GET /records/{id} through Spring MVC and GlobalExceptionHandler with a
+ * repository that never finds anything, so only the request and error handling are measured. Run it on two
+ * commits to compare error-path changes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotFoundRequestBenchmark {
+    private MockMvc mockMvc;
+    private long nextId;
+
+    @Setup
+    public void createMockMvc() {
+        RecordShopServiceImpl recordShopService = new RecordShopServiceImpl();
+        // Mockito answers Optional-returning methods with Optional.empty(), so every lookup misses
+        ReflectionTestUtils.setField(recordShopService, "recordShopRepository", Mockito.mock(RecordShopRepository.class));
+        // No snapshot, so every lookup goes to the repository
+        ReflectionTestUtils.setField(recordShopService, "catalogSnapshot", Mockito.mock(ObjectProvider.class));
+
+        RecordShopController recordShopController = new RecordShopController();
+        recordShopController.recordShopService = recordShopService;
+        recordShopController.objectMapper = new ObjectMapper();
+        recordShopController.catalogVersionTracker = new CatalogVersionTracker();
+
+        mockMvc = MockMvcBuilders.standaloneSetup(recordShopController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Benchmark
+    public MvcResult getMissingAlbum() throws Exception {
+        return mockMvc.perform(get("/api/v1/record-shop/records/{id}", ++nextId)).andReturn();
+    }
+}
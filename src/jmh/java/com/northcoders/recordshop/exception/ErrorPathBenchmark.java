@@ -0,0 +1,88 @@
+package com.northcoders.recordshop.exception;
+
+import com.northcoders.recordshop.model.ExceptionResponse;
+import com.northcoders.recordshop.model.Genre;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a 404 or 400 from throw to handled response, thrown from stackDepth frames down to stand in for the
+ * servlet, filter and Spring MVC frames above a handler. The withStackTrace variants throw the way these
+ * exceptions used to, filling in the whole stack; the others use the stackless exceptions and genre lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorPathBenchmark {
+    @Param({"16", "128"})
+    int stackDepth;
+
+    private final GlobalExceptionHandler exceptionHandler = new GlobalExceptionHandler();
+
+    @Benchmark
+    public ResponseEntity<ExceptionResponse> notFoundWithStackTrace() {
+        try {
+            throwAtDepth(stackDepth, () -> {
+                throw new RuntimeException("There is no album with id '404' in the database!");
+            });
+            return null;
+        } catch (RuntimeException e) {
+            return exceptionHandler.handleRuntimeException(e);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ExceptionResponse> notFoundStackless() {
+        try {
+            throwAtDepth(stackDepth, () -> {
+                throw new ResourceNotFoundException("There is no album with id '404' in the database!");
+            });
+            return null;
+        } catch (ResourceNotFoundException e) {
+            return exceptionHandler.handleResourceNotFoundException(e);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ExceptionResponse> invalidGenreWithStackTrace() {
+        try {
+            throwAtDepth(stackDepth, () -> {
+                try {
+                    Genre.valueOf("polka".toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new RuntimeException("Provided argument 'polka' is not a valid genre!");
+                }
+            });
+            return null;
+        } catch (RuntimeException e) {
+            return exceptionHandler.handleRuntimeException(e);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ExceptionResponse> invalidGenreStackless() {
+        try {
+            throwAtDepth(stackDepth, () -> {
+                if (Genre.fromName("polka") == null) {
+                    throw new BadRequestException("Provided argument 'polka' is not a valid genre!");
+                }
+            });
+            return null;
+        } catch (BadRequestException e) {
+            return exceptionHandler.handleRBadRequestException(e);
+        }
+    }
+
+    private static void throwAtDepth(int depth, Runnable thrower) {
+        if (depth == 0) {
+            thrower.run();
+        } else {
+            throwAtDepth(depth - 1, thrower);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.northcoders.recordshop.loadtest;
+
+/**
+ * The requests the load test sends, with the share of traffic each one gets out of 100.
+ */
+enum Endpoint {
+    GET_ALL("GET /records", 15),
+    GET_BY_ARTIST("GET /records?artist", 10),
+    GET_BY_RELEASE_YEAR("GET /records?releaseYear", 10),
+    GET_BY_GENRE("GET /records?genre", 10),
+    GET_BY_ALBUM_NAME("GET /records?albumName", 10),
+    GET_BY_GENRE_AND_RELEASE_YEAR("GET /records?genre&releaseYear", 5),
+    GET_BY_ID("GET /records/{id}", 25),
+    POST("POST /records", 5),
+    PUT("PUT /records/{id}", 5),
+    DELETE("DELETE /records/{id}", 5);
+
+    final String label;
+    final int weight;
+
+    Endpoint(String label, int weight) {
+        this.label = label;
+        this.weight = weight;
+    }
+
+    static Endpoint pick(int roll) {
+        for (Endpoint endpoint : values()) {
+            roll -= endpoint.weight;
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        return GET_BY_ID;
+    }
+}
@@ -0,0 +1,47 @@
+package com.northcoders.recordshop.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects every latency sample and response status for one endpoint. Samples are kept raw so the percentiles
+ * are exact rather than bucketed.
+ */
+class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int count;
+    private final Map<Integer, Integer> statusCounts = new TreeMap<>();
+
+    synchronized void record(long latencyNanos, int status) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = latencyNanos;
+        statusCounts.merge(status, 1, Integer::sum);
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    synchronized Map<Integer, Integer> statusCounts() {
+        return new TreeMap<>(statusCounts);
+    }
+
+    // Nearest-rank percentile in milliseconds
+    synchronized double[] percentilesMillis(double... percentiles) {
+        double[] result = new double[percentiles.length];
+        if (count == 0) {
+            return result;
+        }
+
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        for (int i = 0; i < percentiles.length; i++) {
+            int rank = (int) Math.ceil(percentiles[i] / 100 * count);
+            result[i] = sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,237 @@
+package com.northcoders.recordshop.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.northcoders.recordshop.BenchmarkCatalog;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumBatchResult;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.service.RecordShopService;
+import com.northcoders.recordshop.service.RecordShopServiceImpl;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model HTTP load test. Boots the application on a random port against an in-memory H2 database, seeds a
+ * synthetic catalog and sends a weighted mix of every endpoint at a fixed arrival rate. Latency is measured from
+ * when each request was scheduled to go out, so a slow server can't hide its queueing delay by slowing the client.
+ * <p>
+ * Options (all optional): --catalog-size=10000 --rate=200 --warmup=10 --duration=60 --threads=platform|virtual
+ * --out=target/loadtest-platform.csv. Anything else is passed to Spring, e.g. --spring.datasource.url=...
+ */
+public class LoadTest {
+    private static final String BASE_PATH = "/api/v1/record-shop/records";
+    private static final double[] PERCENTILES = {50, 95, 99};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random = new Random(BenchmarkCatalog.SEED);
+    private final Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+    private final Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final int catalogSize;
+    private final long[] seededIds;
+
+    LoadTest(int port, int catalogSize, long[] seededIds) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.baseUrl = "http://localhost:" + port + BASE_PATH;
+        this.catalogSize = catalogSize;
+        this.seededIds = seededIds;
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new LatencyRecorder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>(List.of("--server.port=0"));
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (option[0].matches("catalog-size|rate|warmup|duration|threads|out") && option.length == 2) {
+                options.put(option[0], option[1]);
+            } else {
+                springArgs.add(arg);
+            }
+        }
+
+        int catalogSize = Integer.parseInt(options.getOrDefault("catalog-size", "10000"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        String threads = options.getOrDefault("threads", "platform");
+        Path out = Path.of(options.getOrDefault("out", "target/loadtest-" + threads + ".csv"));
+
+        if (threads.equals("virtual")) {
+            springArgs.add("--spring.profiles.active=h2,virtual-threads");
+        } else if (threads.equals("platform")) {
+            springArgs.add("--spring.profiles.active=h2");
+        } else {
+            throw new IllegalArgumentException("--threads must be platform or virtual");
+        }
+
+        try (ConfigurableApplicationContext context = BenchmarkCatalog.startWebContext(springArgs.toArray(new String[0]))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            long[] seededIds = seed(context.getBean(RecordShopService.class), catalogSize);
+
+            System.out.printf("Seeded %d albums; %d requests/s on %s threads, %ds warm-up then %ds measured%n",
+                    catalogSize, rate, threads, warmupSeconds, durationSeconds);
+            LoadTest loadTest = new LoadTest(port, catalogSize, seededIds);
+            loadTest.run(rate, warmupSeconds, durationSeconds);
+            loadTest.report(durationSeconds, out);
+        }
+    }
+
+    private static long[] seed(RecordShopService recordShopService, int catalogSize) {
+        List<Album> albums = BenchmarkCatalog.randomAlbums(catalogSize);
+        long[] ids = new long[catalogSize];
+        int next = 0;
+        for (int from = 0; from < catalogSize; from += RecordShopServiceImpl.MAX_BATCH_SIZE) {
+            List<Album> batch = albums.subList(from, Math.min(catalogSize, from + RecordShopServiceImpl.MAX_BATCH_SIZE));
+            for (AlbumBatchResult result : recordShopService.insertNewAlbums(batch)) {
+                ids[next++] = result.getAlbum().getId();
+            }
+        }
+        return ids;
+    }
+
+    void run(int rate, int warmupSeconds, int durationSeconds) {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long scheduledAt = start + i * interval;
+                if (scheduledAt >= end) {
+                    break;
+                }
+                long wait = scheduledAt - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                Endpoint endpoint = Endpoint.pick(random.nextInt(100));
+                Long idToDelete = null;
+                if (endpoint == Endpoint.DELETE) {
+                    // Only delete albums this run created, so reads of seeded ids keep finding them
+                    idToDelete = createdIds.poll();
+                    if (idToDelete == null) {
+                        endpoint = Endpoint.POST;
+                    }
+                }
+
+                HttpRequest request = buildRequest(endpoint, idToDelete);
+                boolean measured = scheduledAt >= measureFrom;
+                Endpoint sentEndpoint = endpoint;
+                senders.submit(() -> send(sentEndpoint, request, scheduledAt, measured));
+            }
+        }
+    }
+
+    private HttpRequest buildRequest(Endpoint endpoint, Long idToDelete) {
+        HttpRequest.Builder builder = switch (endpoint) {
+            case GET_ALL -> get("");
+            case GET_BY_ARTIST -> get("?artist=" + encode("Artist " + random.nextInt(Math.max(1, catalogSize / 10))));
+            case GET_BY_RELEASE_YEAR -> get("?releaseYear=" + randomYear());
+            case GET_BY_GENRE -> get("?genre=" + randomGenre().name());
+            case GET_BY_ALBUM_NAME -> get("?albumName=" + encode("Album " + random.nextInt(catalogSize)));
+            case GET_BY_GENRE_AND_RELEASE_YEAR -> get("?genre=" + randomGenre().name() + "&releaseYear=" + randomYear());
+            case GET_BY_ID -> get("/" + randomSeededId());
+            case POST -> HttpRequest.newBuilder(URI.create(baseUrl)).POST(albumBody());
+            case PUT -> HttpRequest.newBuilder(URI.create(baseUrl + "/" + randomSeededId())).PUT(albumBody());
+            case DELETE -> HttpRequest.newBuilder(URI.create(baseUrl + "/" + idToDelete)).DELETE();
+        };
+        return builder.header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private void send(Endpoint endpoint, HttpRequest request, long scheduledAt, boolean measured) {
+        int status;
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            status = response.statusCode();
+            if (endpoint == Endpoint.POST && status == 201) {
+                createdIds.add(objectMapper.readTree(response.body()).get("id").asLong());
+            }
+        } catch (IOException e) {
+            status = -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (measured) {
+            recorders.get(endpoint).record(System.nanoTime() - scheduledAt, status);
+        }
+    }
+
+    void report(int durationSeconds, Path out) throws IOException {
+        Files.createDirectories(out.toAbsolutePath().getParent());
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(out))) {
+            csv.println("endpoint,requests,throughput_rps,p50_ms,p95_ms,p99_ms,statuses");
+            System.out.printf("%-32s %9s %9s %9s %9s %9s  %s%n", "endpoint", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "statuses");
+
+            for (Endpoint endpoint : Endpoint.values()) {
+                LatencyRecorder recorder = recorders.get(endpoint);
+                double throughput = (double) recorder.count() / durationSeconds;
+                double[] p = recorder.percentilesMillis(PERCENTILES);
+                String statuses = recorder.statusCounts().toString();
+
+                System.out.printf("%-32s %9d %9.1f %9.2f %9.2f %9.2f  %s%n",
+                        endpoint.label, recorder.count(), throughput, p[0], p[1], p[2], statuses);
+                csv.printf(Locale.ROOT, "\"%s\",%d,%.1f,%.3f,%.3f,%.3f,\"%s\"%n",
+                        endpoint.label, recorder.count(), throughput, p[0], p[1], p[2], statuses);
+            }
+        }
+        System.out.println("Results written to " + out);
+    }
+
+    private HttpRequest.Builder get(String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery)).GET();
+    }
+
+    private HttpRequest.BodyPublisher albumBody() {
+        String json = String.format("{\"albumName\":\"Load Test %d\",\"artist\":\"Artist %d\",\"releaseYear\":%d,\"genre\":\"%s\"}",
+                random.nextInt(catalogSize), random.nextInt(Math.max(1, catalogSize / 10)), randomYear(), randomGenre().name());
+        return HttpRequest.BodyPublishers.ofString(json);
+    }
+
+    private long randomSeededId() {
+        return seededIds[random.nextInt(seededIds.length)];
+    }
+
+    private int randomYear() {
+        return 1950 + random.nextInt(75);
+    }
+
+    private Genre randomGenre() {
+        return Genre.values()[random.nextInt(Genre.values().length)];
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,51 @@
+package com.northcoders.recordshop.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Album equality and hashing, and Genre parsing the way the controller and service do it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlbumModelBenchmark {
+    private final Album album = new Album(1L, "Voulez-Vous", "ABBA", 1979, Genre.POP);
+    private final Album sameAlbum = new Album(1L, "Voulez-Vous", "ABBA", 1979, Genre.POP);
+    private final Album otherAlbum = new Album(1L, "Voulez-Vous", "ABBA", 1979, Genre.ROCK);
+
+    // The casings clients actually send
+    private final String[] genreInputs = {"Rock", "pop", "HIPHOP", "Jazz", "metal", "Classical", "country", "RnB"};
+    private int nextGenre;
+
+    @Benchmark
+    public boolean equalsSameFields() {
+        return album.equals(sameAlbum);
+    }
+
+    @Benchmark
+    public boolean equalsLastFieldDiffers() {
+        return album.equals(otherAlbum);
+    }
+
+    @Benchmark
+    public int albumHashCode() {
+        return album.hashCode();
+    }
+
+    @Benchmark
+    public Genre parseGenre() {
+        String input = genreInputs[nextGenre++ & 7];
+        return Genre.valueOf(input.toUpperCase());
+    }
+
+    @Benchmark
+    public Genre lookUpGenre() {
+        String input = genreInputs[nextGenre++ & 7];
+        return Genre.fromName(input);
+    }
+}
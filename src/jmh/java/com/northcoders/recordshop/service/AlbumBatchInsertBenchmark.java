@@ -0,0 +1,53 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.BenchmarkCatalog;
+import com.northcoders.recordshop.model.Album;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to ingest a supplier catalog through insertNewAlbums, split into requests of the maximum batch size.
+ * Divide rowCount by the score for rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AlbumBatchInsertBenchmark {
+    @Param({"10000", "100000"})
+    int rowCount;
+
+    private ConfigurableApplicationContext context;
+    private RecordShopService recordShopService;
+    private List<Album> albums;
+
+    @Setup(Level.Trial)
+    public void startCatalog() {
+        context = BenchmarkCatalog.startH2Context();
+        recordShopService = context.getBean(RecordShopService.class);
+    }
+
+    // Inserting sets the ids, so every iteration needs fresh albums
+    @Setup(Level.Iteration)
+    public void createAlbums() {
+        albums = BenchmarkCatalog.randomAlbums(rowCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopCatalog() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Album> insertCatalog() {
+        for (int from = 0; from < rowCount; from += RecordShopServiceImpl.MAX_BATCH_SIZE) {
+            recordShopService.insertNewAlbums(albums.subList(from, Math.min(rowCount, from + RecordShopServiceImpl.MAX_BATCH_SIZE)));
+        }
+        return albums;
+    }
+}
@@ -0,0 +1,102 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.BenchmarkCatalog;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Search lookups on an AlbumSearchIndex holding a synthetic catalog of made-up words, so prefixes and typos hit
+ * realistic numbers of neighbouring words. Queries cycle through prefixes, whole words, words with a typo and
+ * two-word searches taken from the catalog itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class AlbumSearchBenchmark {
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ra", "ven", "tor", "sel", "bu", "dan", "rey", "lu", "mo", "zin", "ta", "er", "os", "pha", "gri", "nel", "quo"};
+
+    @Param({"1000000"})
+    int catalogSize;
+
+    private AlbumSearchIndex albumSearchIndex;
+    private final List<String> prefixes = new ArrayList<>();
+    private final List<String> words = new ArrayList<>();
+    private final List<String> typos = new ArrayList<>();
+    private final List<String> twoWords = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void buildIndex() {
+        Random random = new Random(BenchmarkCatalog.SEED);
+        List<Album> albums = new ArrayList<>(catalogSize);
+        Genre[] genres = Genre.values();
+        for (int i = 1; i <= catalogSize; i++) {
+            albums.add(new Album(i, phrase(random, 1 + random.nextInt(3)), phrase(random, 1 + random.nextInt(2)),
+                    1950 + random.nextInt(75), genres[random.nextInt(genres.length)]));
+        }
+
+        for (int i = 0; i < 1024; i++) {
+            Album album = albums.get(random.nextInt(catalogSize));
+            String word = AlbumSearchIndex.words(album.getAlbumName()).get(0);
+            prefixes.add(word.substring(0, Math.min(3, word.length())));
+            words.add(word);
+            typos.add(word.length() > 4 ? word.substring(0, 2) + word.charAt(3) + word.charAt(2) + word.substring(4) : word);
+            twoWords.add(AlbumSearchIndex.words(album.getArtist()).get(0) + " " + word.substring(0, Math.min(4, word.length())));
+        }
+
+        RecordShopService recordShopService = Mockito.mock(RecordShopService.class);
+        Mockito.doAnswer(invocation -> {
+            albums.forEach(invocation.getArgument(0, Consumer.class));
+            return null;
+        }).when(recordShopService).exportAllAlbums(Mockito.any());
+
+        albumSearchIndex = new AlbumSearchIndex();
+        albumSearchIndex.recordShopService = recordShopService;
+        albumSearchIndex.load();
+    }
+
+    private static String phrase(Random random, int wordCount) {
+        StringBuilder phrase = new StringBuilder();
+        for (int w = 0; w < wordCount; w++) {
+            if (w > 0) phrase.append(' ');
+            int syllables = 2 + random.nextInt(2);
+            for (int s = 0; s < syllables; s++) {
+                String syllable = SYLLABLES[random.nextInt(SYLLABLES.length)];
+                phrase.append(s == 0 ? Character.toUpperCase(syllable.charAt(0)) + syllable.substring(1) : syllable);
+            }
+        }
+        return phrase.toString();
+    }
+
+    @Benchmark
+    public List<Album> prefix() {
+        return albumSearchIndex.search(prefixes.get(next++ & 1023), 20);
+    }
+
+    @Benchmark
+    public List<Album> wholeWord() {
+        return albumSearchIndex.search(words.get(next++ & 1023), 20);
+    }
+
+    @Benchmark
+    public List<Album> typo() {
+        return albumSearchIndex.search(typos.get(next++ & 1023), 20);
+    }
+
+    @Benchmark
+    public List<Album> artistAndNamePrefix() {
+        return albumSearchIndex.search(twoWords.get(next++ & 1023), 20);
+    }
+}
@@ -0,0 +1,98 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.BenchmarkCatalog;
+import com.northcoders.recordshop.exception.ConcurrentUpdateException;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partial album updates from eight threads at once, spread over hotAlbums albums: one album is the worst case,
+ * where every writer contends with every other. Compares putAlbum's single-statement update (no If-Match), its
+ * version-checked update and bounded retry (If-Match: *), and the locking alternative, which reads the row with
+ * select ... for update and writes it in the same transaction.
+ * The gaveUp counter is the optimistic updates that lost every retry and would have been a 409.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class AlbumUpdateContentionBenchmark {
+    @Param({"1", "64"})
+    int hotAlbums;
+
+    private ConfigurableApplicationContext context;
+    private RecordShopService recordShopService;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private long[] albumIds;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcomes {
+        public long gaveUp;
+    }
+
+    @Setup(Level.Trial)
+    public void startCatalog() {
+        context = BenchmarkCatalog.startH2Context();
+        recordShopService = context.getBean(RecordShopService.class);
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        RecordShopRepository recordShopRepository = context.getBean(RecordShopRepository.class);
+        albumIds = new long[hotAlbums];
+        for (int i = 0; i < hotAlbums; i++) {
+            albumIds[i] = recordShopRepository.save(new Album("Hot " + i, "Contended", 2024, Genre.POP)).getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopCatalog() {
+        context.close();
+    }
+
+    @Benchmark
+    public void singleStatement() {
+        Album change = new Album();
+        change.setReleaseYear(1950 + ThreadLocalRandom.current().nextInt(75));
+        recordShopService.putAlbum(change, randomAlbumId());
+    }
+
+    @Benchmark
+    public void optimistic(Outcomes outcomes) {
+        Album change = new Album();
+        change.setReleaseYear(1950 + ThreadLocalRandom.current().nextInt(75));
+        try {
+            recordShopService.putAlbum(change, randomAlbumId(), RecordShopServiceImpl.ANY_VERSION);
+        } catch (ConcurrentUpdateException e) {
+            outcomes.gaveUp++;
+        }
+    }
+
+    @Benchmark
+    public void pessimistic() {
+        long id = randomAlbumId();
+        int releaseYear = 1950 + ThreadLocalRandom.current().nextInt(75);
+        transactionTemplate.executeWithoutResult(status -> {
+            Album album = entityManager.find(Album.class, id, LockModeType.PESSIMISTIC_WRITE);
+            album.setReleaseYear(releaseYear);
+        });
+    }
+
+    private long randomAlbumId() {
+        return albumIds[ThreadLocalRandom.current().nextInt(albumIds.length)];
+    }
+}
@@ -0,0 +1,73 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.BenchmarkCatalog;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ?genre=Rock&releaseYear=1979 against a seeded H2 catalog, answered as one pushed-down query versus the old
+ * approach of loading every rock album and filtering the year in Java. rowsFetched counts rows read from the database.
+ * With catalogIndexEnabled the service answers from the in-memory catalog index instead of the pushed-down query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiFilterBenchmark {
+    @Param({"100000"})
+    int catalogSize;
+
+    @Param({"false", "true"})
+    boolean catalogIndexEnabled;
+
+    private final Map<String, String> params = Map.of("genre", "Rock", "releaseYear", "1979");
+
+    private ConfigurableApplicationContext context;
+    private RecordShopService recordShopService;
+    private RecordShopRepository recordShopRepository;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class RowsFetched {
+        public long rowsFetched;
+    }
+
+    @Setup(Level.Trial)
+    public void startCatalog() {
+        context = BenchmarkCatalog.startH2Context("--recordshop.catalog-index.enabled=" + catalogIndexEnabled);
+        recordShopService = context.getBean(RecordShopService.class);
+        recordShopRepository = context.getBean(RecordShopRepository.class);
+        // Inserts made after startup reach the index through change events
+        BenchmarkCatalog.seed(recordShopService, catalogSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopCatalog() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Album> pushedDownQuery(RowsFetched counter) {
+        List<Album> result = recordShopService.getAllAlbumsByMultipleParams(params, 0L, RecordShopServiceImpl.MAX_PAGE_SIZE);
+        counter.rowsFetched += result.size();
+        return result;
+    }
+
+    @Benchmark
+    public List<Album> inMemoryFilter(RowsFetched counter) {
+        List<Album> result = recordShopRepository.findByGenreAndIdGreaterThanOrderByIdAsc(Genre.ROCK, 0L, Limit.unlimited());
+        counter.rowsFetched += result.size();
+        result.removeIf(album -> !album.getReleaseYear().equals(1979));
+        return result;
+    }
+}
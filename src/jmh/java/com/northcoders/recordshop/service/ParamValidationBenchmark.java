@@ -0,0 +1,44 @@
+package com.northcoders.recordshop.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * checkForBadParams runs on every multi-filter request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParamValidationBenchmark {
+    private final RecordShopServiceImpl recordShopService = new RecordShopServiceImpl();
+    private final Map<String, String> twoParams = new HashMap<>();
+    private final Map<String, String> allParams = new HashMap<>();
+
+    @Setup
+    public void createParams() {
+        twoParams.put("genre", "Rock");
+        twoParams.put("releaseYear", "1979");
+
+        allParams.putAll(twoParams);
+        allParams.put("artist", "ABBA");
+        allParams.put("albumName", "Voulez-Vous");
+    }
+
+    @Benchmark
+    public Map<String, String> checkTwoParams() {
+        recordShopService.checkForBadParams(twoParams);
+        return twoParams;
+    }
+
+    @Benchmark
+    public Map<String, String> checkAllParams() {
+        recordShopService.checkForBadParams(allParams);
+        return allParams;
+    }
+}
@@ -0,0 +1,86 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.BenchmarkCatalog;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from starting the application to having answered its first reads: lookups of firstReads distinct albums, as
+ * a node sees straight after a deploy. "cold" starts with an empty album cache, so every lookup goes to the
+ * database; "snapshot" maps the catalog snapshot the previous run wrote on shutdown and answers from that while it
+ * reconciles in the background. Both restart against the same, already seeded database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WarmStartBenchmark {
+    @Param({"100000"})
+    int catalogSize;
+
+    @Param({"10000"})
+    int firstReads;
+
+    @Param({"cold", "snapshot"})
+    String start;
+
+    private final String databaseName = "warm-start-" + UUID.randomUUID();
+    private Path snapshotFile;
+    private long[] readIds;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void seedCatalog() throws IOException {
+        snapshotFile = Files.createTempDirectory("warm-start").resolve("catalog.snapshot");
+
+        // Closing this first context writes the snapshot the "snapshot" runs start from
+        try (ConfigurableApplicationContext seeding = startContext(true)) {
+            BenchmarkCatalog.seed(seeding.getBean(RecordShopService.class), catalogSize);
+            List<Long> ids = seeding.getBean(JdbcTemplate.class).queryForList("select id from album order by id", Long.class);
+
+            Random random = new Random(BenchmarkCatalog.SEED);
+            readIds = random.ints(0, ids.size()).distinct().limit(firstReads).mapToLong(ids::get).toArray();
+        }
+    }
+
+    @Benchmark
+    public long startAndServeFirstReads() {
+        context = startContext(start.equals("snapshot"));
+        RecordShopService recordShopService = context.getBean(RecordShopService.class);
+
+        long checksum = 0;
+        for (long id : readIds) {
+            checksum += recordShopService.getAlbumById(id).getReleaseYear();
+        }
+        return checksum;
+    }
+
+    // Not measured: shutting down, which also rewrites the snapshot
+    @TearDown(Level.Invocation)
+    public void stopContext() {
+        context.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void removeSnapshot() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+        Files.deleteIfExists(snapshotFile.getParent());
+    }
+
+    private ConfigurableApplicationContext startContext(boolean snapshotEnabled) {
+        return BenchmarkCatalog.startNamedH2Context(databaseName,
+                "--recordshop.snapshot.enabled=" + snapshotEnabled,
+                "--recordshop.snapshot.file=" + snapshotFile);
+    }
+}
@@ -2,8 +2,10 @@ package com.northcoders.recordshop;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 
 @SpringBootApplication
+@EnableCaching
 public class RecordShopApiApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,73 @@
+package com.northcoders.recordshop.config;
+
+import com.northcoders.recordshop.model.Album;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Writes Album and List&lt;Album&gt; response bodies as protobuf (src/main/proto/album.proto) when a client asks for
+ * application/x-protobuf. Responses of any other type fall back to the other converters, so they can't be
+ * requested as protobuf. Request bodies are not read.
+ */
+public class AlbumProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    public AlbumProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Album.class.isAssignableFrom(clazz) || List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isAlbumOrAlbumList(type != null ? type : clazz) && canWrite(mediaType);
+    }
+
+    private static boolean isAlbumOrAlbumList(Type type) {
+        if (type instanceof Class<?> clazz) return Album.class.isAssignableFrom(clazz);
+        return type instanceof ParameterizedType parameterized
+                && parameterized.getRawType() instanceof Class<?> raw && List.class.isAssignableFrom(raw)
+                && parameterized.getActualTypeArguments()[0] == Album.class;
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = new BufferedOutputStream(outputMessage.getBody(), 8192);
+        if (body instanceof Album album) {
+            AlbumProtobufWriter.writeAlbum(album, out);
+        } else {
+            @SuppressWarnings("unchecked")
+            List<Album> albums = (List<Album>) body;
+            AlbumProtobufWriter.writeAlbumList(albums, out);
+        }
+        out.flush();
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+}
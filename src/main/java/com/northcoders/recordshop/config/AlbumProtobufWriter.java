@@ -0,0 +1,74 @@
+package com.northcoders.recordshop.config;
+
+import com.northcoders.recordshop.model.Album;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encodes albums in the protobuf wire format described by src/main/proto/album.proto, without generated classes.
+ * As in proto3, fields holding their default value (null, 0 or empty) are left out.
+ */
+public class AlbumProtobufWriter {
+    private static final int VARINT = 0;
+    private static final int LENGTH_DELIMITED = 2;
+
+    private AlbumProtobufWriter() {
+    }
+
+    // An AlbumList message
+    public static void writeAlbumList(List<Album> albums, OutputStream out) throws IOException {
+        // Each album is length-prefixed, so it is encoded to a scratch buffer first to learn its size
+        ByteArrayOutputStream albumBytes = new ByteArrayOutputStream(128);
+        for (Album album : albums) {
+            albumBytes.reset();
+            writeAlbum(album, albumBytes);
+            writeTag(out, 1, LENGTH_DELIMITED);
+            writeVarint(out, albumBytes.size());
+            albumBytes.writeTo(out);
+        }
+    }
+
+    // An Album message
+    public static void writeAlbum(Album album, OutputStream out) throws IOException {
+        if (album.getId() != null && album.getId() != 0) {
+            writeTag(out, 1, VARINT);
+            writeVarint(out, album.getId());
+        }
+        writeString(out, 2, album.getAlbumName());
+        writeString(out, 3, album.getArtist());
+        if (album.getReleaseYear() != null && album.getReleaseYear() != 0) {
+            writeTag(out, 4, VARINT);
+            // int32 fields sign-extend to 64 bits on the wire
+            writeVarint(out, (long) album.getReleaseYear());
+        }
+        if (album.getGenreAsGenre() != null) {
+            writeTag(out, 5, VARINT);
+            // Shifted by one, as 0 is reserved for GENRE_UNSPECIFIED
+            writeVarint(out, album.getGenreAsGenre().ordinal() + 1);
+        }
+    }
+
+    private static void writeString(OutputStream out, int field, String value) throws IOException {
+        if (value == null || value.isEmpty()) return;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeTag(out, field, LENGTH_DELIMITED);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeTag(OutputStream out, int field, int wireType) throws IOException {
+        writeVarint(out, (field << 3) | wireType);
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,27 @@
+package com.northcoders.recordshop.config;
+
+import com.northcoders.recordshop.controller.AlbumChangeFeed;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "recordshop.change-feed.enabled", havingValue = "true")
+public class ChangeFeedConfig {
+
+    @Bean
+    public AlbumChangeFeed albumChangeFeed(MeterRegistry meterRegistry,
+                                           @Value("${recordshop.change-feed.capacity:4096}") int capacity) {
+        AlbumChangeFeed feed = new AlbumChangeFeed(capacity);
+        Gauge.builder("recordshop.change-feed.subscribers", feed, AlbumChangeFeed::getSubscriberCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("recordshop.change-feed.resets", feed, AlbumChangeFeed::getResetCount)
+                .description("Subscribers told to reload because they fell further behind than the feed keeps")
+                .register(meterRegistry);
+        return feed;
+    }
+}
@@ -0,0 +1,34 @@
+package com.northcoders.recordshop.config;
+
+import io.micrometer.common.KeyValues;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Adds a filter tag to http.server.requests naming the album filters a request used, e.g. "genre" or
+ * "releaseYear+genre", so each query shape gets its own latency histogram. Only the names are used, never the
+ * values, so there are at most 16 distinct tags.
+ */
+public class FilterShapeObservationConvention extends DefaultServerRequestObservationConvention {
+    public static final String FILTER_TAG = "filter";
+    private static final List<String> FILTER_PARAMS = List.of("artist", "releaseYear", "genre", "albumName");
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        return super.getLowCardinalityKeyValues(context).and(FILTER_TAG, filterShape(context.getCarrier()));
+    }
+
+    static String filterShape(HttpServletRequest request) {
+        StringJoiner shape = new StringJoiner("+");
+        for (String param : FILTER_PARAMS) {
+            if (request.getParameter(param) != null) {
+                shape.add(param);
+            }
+        }
+        return shape.length() == 0 ? "none" : shape.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.northcoders.recordshop.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Binary alternatives to JSON, picked by the request's Accept header: application/cbor, application/x-jackson-smile
+ * and application/x-protobuf. JSON stays first in line, so it is still what clients get when they don't ask.
+ */
+@Configuration
+public class HttpMessageConvertersConfig implements WebMvcConfigurer {
+
+    // The Jackson formats are built from Boot's builder so they share the JSON mapper's settings.
+    // The builder bean is prototype-scoped, so each method gets its own.
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    // Not a bean: Boot puts converter beans that don't replace one of its own ahead of all the others, which would
+    // make protobuf the answer to */*. Appended here it comes after JSON.
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new AlbumProtobufHttpMessageConverter());
+    }
+}
@@ -0,0 +1,27 @@
+package com.northcoders.recordshop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.northcoders.recordshop.controller.ListingResponseCache;
+import com.northcoders.recordshop.service.RecordShopService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "recordshop.listing-cache.enabled", havingValue = "true")
+public class ListingCacheConfig {
+
+    @Bean
+    public ListingResponseCache listingResponseCache(RecordShopService recordShopService,
+                                                     ObjectMapper objectMapper,
+                                                     MeterRegistry meterRegistry,
+                                                     @Value("${recordshop.listing-cache.max-entries:500}") long maxEntries,
+                                                     @Value("${recordshop.listing-cache.gzip:true}") boolean gzip) {
+        ListingResponseCache cache = new ListingResponseCache(recordShopService, objectMapper, maxEntries, gzip);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.getNativeCache(), "listings");
+        return cache;
+    }
+}
@@ -0,0 +1,22 @@
+package com.northcoders.recordshop.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+
+@Configuration
+public class MetricsConfig {
+
+    // Without this aspect @Timed is only honoured on controller handlers, not on the service
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public ServerRequestObservationConvention filterShapeObservationConvention() {
+        return new FilterShapeObservationConvention();
+    }
+}
@@ -0,0 +1,54 @@
+package com.northcoders.recordshop.config;
+
+import com.northcoders.recordshop.profiling.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "recordshop.sql-profiler.enabled", havingValue = "true")
+public class SqlProfilerConfig {
+
+    @Bean
+    public AsyncLogSink sqlProfilerLogSink(@Value("${recordshop.sql-profiler.log-queue-size:10000}") int capacity) {
+        return new AsyncLogSink(capacity);
+    }
+
+    @Bean
+    public SqlProfiler sqlProfiler(AsyncLogSink sqlProfilerLogSink,
+                                   @Value("${recordshop.sql-profiler.buffer-size:1000}") int bufferSize,
+                                   @Value("${recordshop.sql-profiler.slow-threshold-ms:100}") long slowThresholdMillis,
+                                   @Value("${recordshop.sql-profiler.n-plus-one-threshold:10}") int nPlusOneThreshold,
+                                   @Value("${recordshop.sql-profiler.log-all-statements:false}") boolean logAllStatements) {
+        return new SqlProfiler(bufferSize, slowThresholdMillis, nPlusOneThreshold, logAllStatements, sqlProfilerLogSink);
+    }
+
+    // Static so it is registered before the DataSource is created
+    @Bean
+    public static BeanPostProcessor profilingDataSourcePostProcessor(ObjectProvider<SqlProfiler> sqlProfiler) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProfilingDataSource)) {
+                    return new ProfilingDataSource(dataSource, sqlProfiler.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SqlProfilerFilter sqlProfilerFilter(SqlProfiler sqlProfiler) {
+        return new SqlProfilerFilter(sqlProfiler);
+    }
+
+    @Bean
+    public SqlProfilerEndpoint sqlProfilerEndpoint(SqlProfiler sqlProfiler) {
+        return new SqlProfilerEndpoint(sqlProfiler);
+    }
+}
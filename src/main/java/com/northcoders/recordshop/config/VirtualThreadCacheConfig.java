@@ -0,0 +1,37 @@
+package com.northcoders.recordshop.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadCacheConfig {
+
+    // A synchronous Caffeine cache runs the loader for a miss inside a map-bin lock, which pins a virtual thread to
+    // its carrier for the whole database call. In async mode the bin only holds a future while the load runs
+    // outside it, so concurrent misses on the same id park on the future instead.
+    // Caffeine would run those loads on ForkJoinPool.commonPool(), a handful of platform threads that blocking
+    // database reads could use up, so they go to the application's task executor, which is virtual in this mode.
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> asyncCaffeineCacheMode(
+            CacheProperties cacheProperties,
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor applicationTaskExecutor) {
+        return cacheManager -> {
+            String spec = cacheProperties.getCaffeine().getSpec();
+            Caffeine<Object, Object> caffeine = StringUtils.hasText(spec) ? Caffeine.from(spec) : Caffeine.newBuilder();
+            cacheManager.setCaffeine(caffeine.executor(applicationTaskExecutor));
+            cacheManager.setAsyncCacheMode(true);
+        };
+    }
+}
@@ -0,0 +1,182 @@
+package com.northcoders.recordshop.controller;
+
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.model.CatalogChange;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Streams committed album writes to server-sent event subscribers. The most recent changes are kept in a ring
+ * buffer, numbered in commit order, so a client that reconnects with Last-Event-ID picks up where it left off.
+ * <p>
+ * Writers only ever add to the ring. Each subscriber is sent its events from its own virtual thread, so a slow
+ * client holds up nobody but itself. One that falls so far behind that the ring has moved past its position is
+ * sent a reset event, telling it to reload from /records, and carries on from the newest change.
+ */
+public class AlbumChangeFeed implements AutoCloseable {
+    public static final String RESET_EVENT = "reset";
+
+    // Distinguishes event ids handed out before a restart, when the sequence starts again from zero
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicReferenceArray<CatalogChange> ring;
+    private final Object appendLock = new Object();
+    // Written after the ring slot, so a reader that sees a sequence here will find its change in the ring
+    private volatile long lastSequence;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong resets = new AtomicLong();
+
+    public AlbumChangeFeed(int capacity) {
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    // Runs after CatalogVersionTracker, so a subscriber that fetches the album on hearing of the change gets a
+    // response, and an ETag, that already reflect it.
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlbumChange(AlbumChangeEvent event) {
+        // Only long enough to number the change and put it in its slot
+        synchronized (appendLock) {
+            long sequence = lastSequence + 1;
+            ring.set(slot(sequence), new CatalogChange(sequence, event));
+            lastSequence = sequence;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.wake();
+        }
+    }
+
+    /**
+     * Starts a stream from just after lastEventId, or from now if it is null. An id from before a restart, or one
+     * the ring no longer reaches back to, gets a reset event first.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter();
+        Subscriber subscriber = new Subscriber(emitter, resumeFrom(lastEventId));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscribers.remove(subscriber));
+
+        subscribers.add(subscriber);
+        subscriber.wake();
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getResetCount() {
+        return resets.get();
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    @Override
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    // The sequence to send after, or -1 when the client has to be told to reload first
+    private long resumeFrom(String lastEventId) {
+        long newest = lastSequence;
+        if (lastEventId == null || lastEventId.isBlank()) return newest;
+
+        String prefix = epoch + "-";
+        if (!lastEventId.startsWith(prefix)) return -1;
+        try {
+            long sequence = Long.parseLong(lastEventId.substring(prefix.length()));
+            return sequence >= 0 && sequence <= newest ? sequence : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % ring.length());
+    }
+
+    private final class Subscriber implements Runnable {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // Only touched by the thread currently sending, and handed between them through `sending`
+        private long sentUpTo;
+
+        private Subscriber(SseEmitter emitter, long sentUpTo) {
+            this.emitter = emitter;
+            this.sentUpTo = sentUpTo;
+        }
+
+        void wake() {
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                sendPending();
+            } catch (IOException | IllegalStateException e) {
+                // The client has gone, or the stream has already been completed
+                subscribers.remove(this);
+                return;
+            } finally {
+                sending.set(false);
+            }
+            // A change added after the last check, whose wake() found us still sending
+            if (sentUpTo < lastSequence && subscribers.contains(this)) wake();
+        }
+
+        private void sendPending() throws IOException {
+            if (sentUpTo < 0) sendReset();
+
+            while (sentUpTo < lastSequence) {
+                long next = sentUpTo + 1;
+                CatalogChange change = ring.get(slot(next));
+                if (change.getSequence() != next) {
+                    // Overwritten while this client was catching up
+                    sendReset();
+                    continue;
+                }
+                emitter.send(SseEmitter.event()
+                        .id(eventId(next))
+                        .name(change.getType().name().toLowerCase())
+                        .data(change, MediaType.APPLICATION_JSON));
+                sentUpTo = next;
+            }
+        }
+
+        private void sendReset() throws IOException {
+            long newest = lastSequence;
+            resets.incrementAndGet();
+            emitter.send(SseEmitter.event()
+                    .id(eventId(newest))
+                    .name(RESET_EVENT)
+                    .data("Changes have been missed. Reload the catalog from /records, then carry on from this event."));
+            sentUpTo = newest;
+        }
+    }
+}
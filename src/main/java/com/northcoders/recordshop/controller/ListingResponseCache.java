@@ -0,0 +1,150 @@
+package com.northcoders.recordshop.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.service.RecordShopService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Finished JSON bodies for the pages of GET /records that are read the most: the unfiltered listing and the
+ * single-genre listings. A hit is copied straight to the response, skipping the service and Jackson. Every committed
+ * write moves the cache to a new generation, and entries from an older generation are never served again.
+ */
+public class ListingResponseCache {
+    private final RecordShopService recordShopService;
+    private final ObjectMapper objectMapper;
+    private final boolean gzip;
+    private final Cache<ListingKey, Listing> listings;
+    private final AtomicLong generation = new AtomicLong();
+
+    // genre is null for the unfiltered listing
+    record ListingKey(Genre genre, long after, int limit) {
+    }
+
+    // gzipped is null when pre-compression is turned off; nextCursor is null on the last page
+    record Listing(long generation, byte[] json, byte[] gzipped, String nextCursor) {
+    }
+
+    public ListingResponseCache(RecordShopService recordShopService, ObjectMapper objectMapper, long maxEntries, boolean gzip) {
+        this.recordShopService = recordShopService;
+        this.objectMapper = objectMapper;
+        this.gzip = gzip;
+        this.listings = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+    }
+
+    public Cache<?, ?> getNativeCache() {
+        return listings;
+    }
+
+    // Only JSON is cached, so a client that prefers one of the binary formats has to go the normal way
+    public static boolean canServe(HttpServletRequest request) {
+        return RepresentationETags.prefersJson(request);
+    }
+
+    // The tag for the body write() will send this client. A gzipped body isn't the same bytes as the plain one, so
+    // it can't share a strong tag with it. Also marks the response as varying on Accept-Encoding, 304s included.
+    public String eTagFor(String eTag, HttpServletRequest request, HttpServletResponse response) {
+        if (!gzip) return eTag;
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!acceptsGzip(request)) return eTag;
+        return eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+    }
+
+    // Writes the page to the response, gzipped if the client accepts it, under the tag from eTagFor. Errors from
+    // the service (such as the 404 for an empty catalog) are thrown before anything has been written.
+    public void write(Genre genre, long after, int limit, String eTag,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Listing listing = get(new ListingKey(genre, after, limit));
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        if (listing.nextCursor() != null) {
+            response.setHeader(RecordShopController.NEXT_CURSOR_HEADER, listing.nextCursor());
+        }
+
+        byte[] body = listing.json();
+        if (listing.gzipped() != null && acceptsGzip(request)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = listing.gzipped();
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    Listing get(ListingKey key) {
+        // Read before the service is called, so a page built while a write commits is labelled with the older
+        // generation and dropped on the next read
+        long current = generation.get();
+        Listing cached = listings.getIfPresent(key);
+        if (cached != null && cached.generation() == current) return cached;
+
+        Listing listing = build(key, current);
+        if (generation.get() == current) listings.put(key, listing);
+        return listing;
+    }
+
+    private Listing build(ListingKey key, long generation) {
+        List<Album> albums = key.genre() == null
+                ? recordShopService.getAllAlbums(key.after(), key.limit())
+                : recordShopService.getAllAlbumsByGenre(key.genre(), key.after(), key.limit());
+        // Same rule as the uncached path: a full page means there may be more to read
+        String nextCursor = albums.size() == key.limit() ? albums.get(albums.size() - 1).getId().toString() : null;
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(albums);
+            return new Listing(generation, json, gzip ? gzip(json) : null, nextCursor);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Ahead of CatalogVersionTracker, so a new ETag is never handed out while the old pages are still being served
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlbumChange(AlbumChangeEvent event) {
+        generation.incrementAndGet();
+        listings.invalidateAll();
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
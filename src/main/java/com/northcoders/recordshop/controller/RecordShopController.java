@@ -1,15 +1,33 @@
 package com.northcoders.recordshop.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.northcoders.recordshop.exception.BadRequestException;
+import com.northcoders.recordshop.exception.PreconditionFailedException;
+import com.northcoders.recordshop.exception.ResourceNotFoundException;
 import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumBatchResult;
+import com.northcoders.recordshop.model.AlbumLookupResult;
+import com.northcoders.recordshop.model.CatalogFacets;
 import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.service.CatalogVersionTracker;
 import com.northcoders.recordshop.service.RecordShopService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,41 +37,80 @@ public class RecordShopController {
     @Autowired
     RecordShopService recordShopService;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    CatalogVersionTracker catalogVersionTracker;
+
+    // Only present when recordshop.listing-cache.enabled is set
+    @Autowired(required = false)
+    ListingResponseCache listingResponseCache;
+
+    // Only present when recordshop.change-feed.enabled is set
+    @Autowired(required = false)
+    AlbumChangeFeed albumChangeFeed;
+
+    public static final String NEXT_CURSOR_HEADER = "Next-Cursor";
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    private static final String DEFAULT_PAGE_LIMIT = "100";
+    private static final String DEFAULT_SEARCH_LIMIT = "20";
+
     @GetMapping("/records")
     public ResponseEntity<List<Album>> getAllAlbums(@RequestParam Map<String, String> params,
                                                     @RequestParam(name = "artist", required = false) String artist,
                                                     @RequestParam(name = "releaseYear", required = false) Integer year,
                                                     @RequestParam(name = "genre", required = false) String genreString,
-                                                    @RequestParam(name = "albumName", required = false) String albumName) {
+                                                    @RequestParam(name = "albumName", required = false) String albumName,
+                                                    @RequestParam(name = "after", defaultValue = "0") long after,
+                                                    @RequestParam(name = "limit", defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+                                                    WebRequest webRequest,
+                                                    HttpServletRequest request,
+                                                    HttpServletResponse response) throws IOException {
+        // Any write bumps the catalog version, so an unchanged tag means this page can't have changed either
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String eTag = RepresentationETags.forRequest(catalogVersionTracker.getCatalogETag(), request);
+
         List<Album> albumList;
         Genre genre = null;
 
         if (genreString != null) {
-            try {
-                genre = Genre.valueOf(genreString.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                throw new BadRequestException("Provided argument '" + genreString + "' is not a valid genre!");
-            }
+            genre = Genre.fromName(genreString);
+            if (genre == null) throw new BadRequestException("Provided argument '" + genreString + "' is not a valid genre!");
+        }
+
+        Map<String, String> filters = new HashMap<>(params);
+        filters.remove("after");
+        filters.remove("limit");
+
+        boolean cacheable = filters.isEmpty() || (filters.size() == 1 && genre != null);
+        if (cacheable && listingResponseCache != null && ListingResponseCache.canServe(request)) {
+            // The cache may send the page gzipped, which is a representation of its own with its own tag
+            String listingETag = listingResponseCache.eTagFor(eTag, request, response);
+            if (webRequest.checkNotModified(listingETag)) return null;
+            listingResponseCache.write(genre, after, limit, listingETag, request, response);
+            return null;
         }
+        if (webRequest.checkNotModified(eTag)) return null;
 
-        switch (params.size()) {
-            case 0 -> albumList = recordShopService.getAllAlbums();
-            case 1 -> albumList = getAllAlbumsWithOneParam(params, artist, year, genre, albumName);
-            default -> albumList = recordShopService.getAllAlbumsByMultipleParams(params);
+        switch (filters.size()) {
+            case 0 -> albumList = recordShopService.getAllAlbums(after, limit);
+            case 1 -> albumList = getAllAlbumsWithOneParam(filters, artist, year, genre, albumName, after, limit);
+            default -> albumList = recordShopService.getAllAlbumsByMultipleParams(filters, after, limit);
         }
-        return ResponseEntity.ok(albumList);
+        return withNextCursor(ResponseEntity.ok().eTag(eTag), albumList, limit).body(albumList);
     }
 
-    public List<Album> getAllAlbumsWithOneParam(Map<String, String> param, String artist, Integer year, Genre genre, String albumName){
+    public List<Album> getAllAlbumsWithOneParam(Map<String, String> param, String artist, Integer year, Genre genre, String albumName, long after, int limit){
         List<Album> albumList;
         if (artist != null) {
-            albumList = recordShopService.getAllAlbumsByArtist(artist);
+            albumList = recordShopService.getAllAlbumsByArtist(artist, after, limit);
         } else if (year != null) {
-            albumList = recordShopService.getAllAlbumsByReleaseYear(year);
+            albumList = recordShopService.getAllAlbumsByReleaseYear(year, after, limit);
         } else if (genre != null) {
-            albumList = recordShopService.getAllAlbumsByGenre(genre);
+            albumList = recordShopService.getAllAlbumsByGenre(genre, after, limit);
         } else if (albumName != null) {
-            albumList = recordShopService.getAllAlbumsByName(albumName);
+            albumList = recordShopService.getAllAlbumsByName(albumName, after, limit);
         } else {
             String givenParam = param.keySet().toString();
             throw new BadRequestException("Given parameter '" + givenParam.substring(1, givenParam.length() - 1) + "' is not valid on this endpoint!");
@@ -61,6 +118,105 @@ public class RecordShopController {
         return albumList;
     }
 
+    // A full page means there may be more to read, so hand back the last id as the cursor for the next one.
+    private ResponseEntity.BodyBuilder withNextCursor(ResponseEntity.BodyBuilder response, List<Album> albumList, int limit) {
+        if (albumList.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, albumList.get(albumList.size() - 1).getId().toString());
+        }
+        return response;
+    }
+
+    // Sparse fieldsets: ?fields=albumName,artist selects just those columns (plus id) instead of whole albums.
+    // Takes the same filters and paging parameters as the full listing.
+    @GetMapping(value = "/records", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> getAlbumFields(@RequestParam Map<String, String> params,
+                                                                    @RequestParam(name = "fields") String fields,
+                                                                    @RequestParam(name = "after", defaultValue = "0") long after,
+                                                                    @RequestParam(name = "limit", defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+                                                                    WebRequest webRequest) {
+        String eTag = catalogVersionTracker.getCatalogETag();
+        if (webRequest.checkNotModified(eTag)) return null;
+
+        Map<String, String> filters = new HashMap<>(params);
+        filters.remove("fields");
+        filters.remove("after");
+        filters.remove("limit");
+
+        List<Map<String, Object>> albumList = recordShopService.getAlbumFields(fields, filters, after, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag);
+        if (albumList.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, albumList.get(albumList.size() - 1).get("id").toString());
+        }
+        return response.body(albumList);
+    }
+
+    // Batch lookup for clients that would otherwise fetch /records/{id} once per album.
+    // Not combined with filters, paging or fields; ids that don't exist are listed rather than failing the batch.
+    // "!fields" leaves ?ids=..&fields=.. to the sparse fieldset handler, which rejects it, instead of both matching.
+    @GetMapping(value = "/records", params = {"ids", "!fields"})
+    public ResponseEntity<AlbumLookupResult> getAlbumsByIds(@RequestParam Map<String, String> params,
+                                                            @RequestParam(name = "ids") String ids,
+                                                            WebRequest webRequest) {
+        if (params.size() > 1) throw new BadRequestException("The 'ids' parameter can't be combined with any other parameter!");
+
+        String eTag = catalogVersionTracker.getCatalogETag();
+        if (webRequest.checkNotModified(eTag)) return null;
+
+        AlbumLookupResult result = recordShopService.getAlbumsByIds(ids);
+        return ResponseEntity.ok().eTag(eTag).body(result);
+    }
+
+    @GetMapping(value = "/records/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAlbums() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                // Lines are ended by hand below; the default separator would start every line after the first with a space
+                generator.setRootValueSeparator(null);
+                recordShopService.exportAllAlbums(album -> {
+                    try {
+                        generator.writeObject(album);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/records/facets")
+    public ResponseEntity<CatalogFacets> getFacets(@RequestParam Map<String, String> params, WebRequest webRequest) {
+        String eTag = catalogVersionTracker.getCatalogETag();
+        if (webRequest.checkNotModified(eTag)) return null;
+
+        CatalogFacets facets = recordShopService.getFacets(params);
+        return ResponseEntity.ok().eTag(eTag).body(facets);
+    }
+
+    @GetMapping("/records/search")
+    public ResponseEntity<List<Album>> searchAlbums(@RequestParam(name = "q", required = false) String query,
+                                                    @RequestParam(name = "limit", defaultValue = DEFAULT_SEARCH_LIMIT) int limit,
+                                                    WebRequest webRequest) {
+        String eTag = catalogVersionTracker.getCatalogETag();
+        if (webRequest.checkNotModified(eTag)) return null;
+
+        List<Album> albumList = recordShopService.searchAlbums(query, limit);
+        return ResponseEntity.ok().eTag(eTag).body(albumList);
+    }
+
+    // EventSource can only send Last-Event-ID when reconnecting, so a client resuming from a saved id on its
+    // first connection passes it as a parameter instead
+    @GetMapping(value = "/records/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(name = LAST_EVENT_ID_HEADER, required = false) String lastEventIdHeader,
+                                    @RequestParam(name = "lastEventId", required = false) String lastEventIdParam) {
+        if (albumChangeFeed == null) throw new ResourceNotFoundException("The change feed is only available when it is enabled with recordshop.change-feed.enabled.");
+        return albumChangeFeed.subscribe(lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam);
+    }
+
     @PostMapping("/records")
     public ResponseEntity<Album> postAlbum(@RequestBody(required = false) Album album){
         Album newAlbum = recordShopService.insertNewAlbum(album);
@@ -69,26 +225,64 @@ public class RecordShopController {
                 .body(newAlbum);
     }
 
+    @PostMapping("/records/batch")
+    public ResponseEntity<List<AlbumBatchResult>> postAlbums(@RequestBody(required = false) List<Album> albums){
+        List<AlbumBatchResult> results = recordShopService.insertNewAlbums(albums);
+        boolean allCreated = results.stream().allMatch(result -> result.getStatus() == HttpStatus.CREATED.value());
+        return ResponseEntity
+                .status(allCreated ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS)
+                .body(results);
+    }
+
     @GetMapping(value = {"/records/{id}", "/records/"})
-    public ResponseEntity<Album> getAlbumById(@PathVariable(required = false, name = "id") Long id){
+    public ResponseEntity<Album> getAlbumById(@PathVariable(required = false, name = "id") Long id, WebRequest webRequest,
+                                              HttpServletRequest request, HttpServletResponse response){
         if (id == null) throw new BadRequestException("No id supplied! You must supply an id to search for on this endpoint!");
+
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String knownETag = catalogVersionTracker.getAlbumETag(id);
+        if (knownETag != null && webRequest.checkNotModified(RepresentationETags.forRequest(knownETag, request))) return null;
+
         Album album = recordShopService.getAlbumById(id);
-        return ResponseEntity.ok(album);
+        long version = album.getVersion() == null ? 0 : album.getVersion();
+        catalogVersionTracker.rememberAlbumVersion(id, version);
+        return ResponseEntity.ok().eTag(RepresentationETags.forRequest(CatalogVersionTracker.albumETag(id, version), request)).body(album);
+    }
+
+    @GetMapping(value = "/records/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getAlbumFieldsById(@PathVariable(name = "id") Long id,
+                                                                  @RequestParam(name = "fields") String fields,
+                                                                  WebRequest webRequest) {
+        // The projection doesn't read the version, so there's only a tag once the album has been seen in full
+        String eTag = catalogVersionTracker.getAlbumETag(id);
+        if (eTag != null && webRequest.checkNotModified(eTag)) return null;
+
+        Map<String, Object> album = recordShopService.getAlbumFieldsById(id, fields);
+        if (eTag == null) return ResponseEntity.ok(album);
+        return ResponseEntity.ok().eTag(eTag).body(album);
     }
 
     @PutMapping(value = {"/records/{id}", "/records/"})
-    public ResponseEntity<Album> putAlbum(@PathVariable(required = false, name = "id") Long id, @RequestBody(required = false) Album album){
-        ResponseEntity<Album> response = recordShopService.putAlbum(album, id);
+    public ResponseEntity<Album> putAlbum(@PathVariable(required = false, name = "id") Long id,
+                                          @RequestBody(required = false) Album album,
+                                          @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        // Without an id there's no existing album for If-Match to match
+        if (id == null && ifMatch != null) throw new PreconditionFailedException("If-Match can only be used when updating an album by its id!");
+
+        ResponseEntity<Album> response = recordShopService.putAlbum(album, id, id == null ? null : CatalogVersionTracker.parseIfMatch(ifMatch, id));
         if (response.getStatusCode().equals(HttpStatus.CREATED)) {
             response = ResponseEntity.created(URI.create("/api/v1/record-shop/records/" + id)).body(response.getBody());
+        } else if (response.getBody() != null && response.getBody().getVersion() != null) {
+            response = ResponseEntity.ok().eTag(CatalogVersionTracker.albumETag(id, response.getBody().getVersion())).body(response.getBody());
         }
         return response;
     }
 
     @DeleteMapping(value = {"/records/{id}", "/records/"})
-    public ResponseEntity<Album> deleteAlbum(@PathVariable(required = false, name = "id") Long id){
+    public ResponseEntity<Album> deleteAlbum(@PathVariable(required = false, name = "id") Long id,
+                                             @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch){
         if (id == null) throw new BadRequestException("No id supplied! You must supply an id to delete for on this endpoint!");
-        boolean response = recordShopService.deleteAlbum(id);
+        boolean response = recordShopService.deleteAlbum(id, CatalogVersionTracker.parseIfMatch(ifMatch, id));
         if (response) {
             return ResponseEntity.noContent().build();
         } else {
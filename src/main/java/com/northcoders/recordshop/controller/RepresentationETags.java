@@ -0,0 +1,70 @@
+package com.northcoders.recordshop.controller;
+
+import com.northcoders.recordshop.config.AlbumProtobufHttpMessageConverter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Albums and listings can be sent as JSON or one of the binary formats, and each is a different representation
+ * that needs its own strong ETag. JSON keeps the plain tag, so the tag from a default GET still works as If-Match;
+ * the others add the format, e.g. "12-v3+cbor".
+ */
+final class RepresentationETags {
+    private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    // In the order the converters are tried (see HttpMessageConvertersConfig), so the choice for */* or a missing
+    // Accept matches the one Spring makes
+    private static final List<MediaType> PRODUCIBLE = List.of(
+            MediaType.APPLICATION_JSON, SMILE, MediaType.APPLICATION_CBOR, AlbumProtobufHttpMessageConverter.PROTOBUF);
+
+    private RepresentationETags() {
+    }
+
+    static String forRequest(String eTag, HttpServletRequest request) {
+        MediaType format = negotiate(request);
+        if (format == null || format.equalsTypeAndSubtype(MediaType.APPLICATION_JSON)) return eTag;
+        return eTag.substring(0, eTag.length() - 1) + "+" + format.getSubtype() + "\"";
+    }
+
+    static boolean prefersJson(HttpServletRequest request) {
+        MediaType format = negotiate(request);
+        return format != null && format.equalsTypeAndSubtype(MediaType.APPLICATION_JSON);
+    }
+
+    // The format the message converters will pick for this request's Accept header, or null if none fits (a 406)
+    static MediaType negotiate(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) return MediaType.APPLICATION_JSON;
+
+        List<MediaType> acceptable;
+        try {
+            acceptable = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+
+        // Same steps as AbstractMessageConverterMethodProcessor: pair each acceptable type with the formats it
+        // admits, keeping the client's quality, then take the most specific
+        List<MediaType> candidates = new ArrayList<>();
+        for (MediaType acceptableType : acceptable) {
+            for (MediaType producible : PRODUCIBLE) {
+                if (acceptableType.isCompatibleWith(producible)) {
+                    MediaType withQuality = producible.copyQualityValue(acceptableType);
+                    candidates.add(acceptableType.isLessSpecific(withQuality) ? withQuality : acceptableType);
+                }
+            }
+        }
+        MimeTypeUtils.sortBySpecificity(candidates);
+
+        for (MediaType candidate : candidates) {
+            if (candidate.isConcrete()) return candidate.removeQualityValue();
+        }
+        return null;
+    }
+}
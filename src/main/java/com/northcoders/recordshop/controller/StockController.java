@@ -0,0 +1,48 @@
+package com.northcoders.recordshop.controller;
+
+import com.northcoders.recordshop.model.StockLevel;
+import com.northcoders.recordshop.service.StockService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/record-shop")
+public class StockController {
+    @Autowired
+    StockService stockService;
+
+    @GetMapping("/records/{id}/stock")
+    public ResponseEntity<StockLevel> getStock(@PathVariable(name = "id") Long id) {
+        return ResponseEntity.ok(stockService.getStock(id));
+    }
+
+    @PostMapping("/records/{id}/stock/reserve")
+    public ResponseEntity<Void> reserve(@PathVariable(name = "id") Long id,
+                                        @RequestParam(name = "quantity", defaultValue = "1") int quantity) {
+        stockService.reserve(id, quantity);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/records/{id}/stock/release")
+    public ResponseEntity<Void> release(@PathVariable(name = "id") Long id,
+                                        @RequestParam(name = "quantity", defaultValue = "1") int quantity) {
+        stockService.release(id, quantity);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/records/{id}/stock/restock")
+    public ResponseEntity<StockLevel> restock(@PathVariable(name = "id") Long id,
+                                              @RequestParam(name = "quantity") int quantity,
+                                              @RequestParam(name = "pricePence", required = false) Integer pricePence) {
+        return ResponseEntity.ok(stockService.restock(id, quantity, pricePence));
+    }
+
+    // Accepted straight away and written to the stock table with the next batch
+    @PostMapping("/records/{id}/stock/adjust")
+    public ResponseEntity<Void> adjust(@PathVariable(name = "id") Long id,
+                                       @RequestParam(name = "delta") int delta) {
+        stockService.adjust(id, delta);
+        return ResponseEntity.accepted().build();
+    }
+}
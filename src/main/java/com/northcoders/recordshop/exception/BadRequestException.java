@@ -2,6 +2,7 @@ package com.northcoders.recordshop.exception;
 
 public class BadRequestException extends RuntimeException {
     public BadRequestException(String message) {
-        super(message);
+        // No stack trace: filling it in is most of the cost of throwing, and the client's mistake needs no trace
+        super(message, null, false, false);
     }
 }
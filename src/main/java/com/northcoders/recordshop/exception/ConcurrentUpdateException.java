@@ -0,0 +1,8 @@
+package com.northcoders.recordshop.exception;
+
+public class ConcurrentUpdateException extends RuntimeException {
+    public ConcurrentUpdateException(String message) {
+        // Stackless like OutOfStockException: losing every retry to other writers is an expected outcome
+        super(message, null, false, false);
+    }
+}
@@ -8,19 +8,45 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
+    private static final String BAD_REQUEST_ERROR = BadRequestException.class.getCanonicalName();
+    private static final String NOT_FOUND_ERROR = ResourceNotFoundException.class.getCanonicalName();
+    private static final String OUT_OF_STOCK_ERROR = OutOfStockException.class.getCanonicalName();
+    private static final String CONCURRENT_UPDATE_ERROR = ConcurrentUpdateException.class.getCanonicalName();
+    private static final String PRECONDITION_FAILED_ERROR = PreconditionFailedException.class.getCanonicalName();
 
     @ExceptionHandler(BadRequestException.class)
     public ResponseEntity<ExceptionResponse> handleRBadRequestException(BadRequestException exception){
         return ResponseEntity
                 .status(HttpStatus.BAD_REQUEST)
-                .body(new ExceptionResponse(exception.getMessage(), 400, exception.getClass().getCanonicalName()));
+                .body(new ExceptionResponse(exception.getMessage(), 400, BAD_REQUEST_ERROR));
     }
 
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ExceptionResponse> handleResourceNotFoundException(ResourceNotFoundException exception){
         return ResponseEntity
                 .status(HttpStatus.NOT_FOUND)
-                .body(new ExceptionResponse(exception.getMessage(), 404, exception.getClass().getCanonicalName()));
+                .body(new ExceptionResponse(exception.getMessage(), 404, NOT_FOUND_ERROR));
+    }
+
+    @ExceptionHandler(OutOfStockException.class)
+    public ResponseEntity<ExceptionResponse> handleOutOfStockException(OutOfStockException exception){
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(new ExceptionResponse(exception.getMessage(), 409, OUT_OF_STOCK_ERROR));
+    }
+
+    @ExceptionHandler(ConcurrentUpdateException.class)
+    public ResponseEntity<ExceptionResponse> handleConcurrentUpdateException(ConcurrentUpdateException exception){
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(new ExceptionResponse(exception.getMessage(), 409, CONCURRENT_UPDATE_ERROR));
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ExceptionResponse> handlePreconditionFailedException(PreconditionFailedException exception){
+        return ResponseEntity
+                .status(HttpStatus.PRECONDITION_FAILED)
+                .body(new ExceptionResponse(exception.getMessage(), 412, PRECONDITION_FAILED_ERROR));
     }
 
     @ExceptionHandler(RuntimeException.class)
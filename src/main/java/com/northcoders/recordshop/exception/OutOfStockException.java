@@ -0,0 +1,8 @@
+package com.northcoders.recordshop.exception;
+
+public class OutOfStockException extends RuntimeException {
+    public OutOfStockException(String message) {
+        // Stackless like BadRequestException: selling out is the normal end of a reservation race
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,8 @@
+package com.northcoders.recordshop.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        // Stackless like OutOfStockException: a stale If-Match is an expected outcome, not a fault
+        super(message, null, false, false);
+    }
+}
@@ -2,6 +2,7 @@ package com.northcoders.recordshop.exception;
 
 public class ResourceNotFoundException extends RuntimeException{
     public ResourceNotFoundException (String message) {
-        super(message);
+        // Stackless like BadRequestException: a missing album is an ordinary answer, not a fault
+        super(message, null, false, false);
     }
 }
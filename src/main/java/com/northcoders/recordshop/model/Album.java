@@ -10,7 +10,9 @@ import java.util.Objects;
 @Table(name = "album")
 public class Album {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence rather than IDENTITY so Hibernate knows ids before inserting and can batch the inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "album_id_generator")
+    @SequenceGenerator(name = "album_id_generator", sequenceName = "album_seq", allocationSize = 50)
     @Column(name = "id", nullable = false)
     @Schema(accessMode = Schema.AccessMode.READ_ONLY, description = "ID of album, provided by the database")
     Long id;
@@ -31,6 +33,12 @@ public class Album {
     @Schema(description = "Genre of the album", allowableValues = {"Pop", "Rock", "Hip Hop", "RnB", "Country", "Jazz", "Metal", "Classical"})
     Genre genre;
 
+    // Bumped by every update. Clients see it through the ETag rather than in the body.
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    Long version;
+
     public Album() {
     }
 
@@ -94,6 +102,14 @@ public class Album {
         this.genre = genre;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
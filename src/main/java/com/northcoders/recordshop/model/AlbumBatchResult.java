@@ -0,0 +1,55 @@
+package com.northcoders.recordshop.model;
+
+public class AlbumBatchResult {
+    int index;
+    int status;
+    Album album;
+    String message;
+
+    public AlbumBatchResult(int index, int status, Album album, String message) {
+        this.index = index;
+        this.status = status;
+        this.album = album;
+        this.message = message;
+    }
+
+    public static AlbumBatchResult created(int index, Album album) {
+        return new AlbumBatchResult(index, 201, album, null);
+    }
+
+    public static AlbumBatchResult rejected(int index, String message) {
+        return new AlbumBatchResult(index, 400, null, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Album getAlbum() {
+        return album;
+    }
+
+    public void setAlbum(Album album) {
+        this.album = album;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
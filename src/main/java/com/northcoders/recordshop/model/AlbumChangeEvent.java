@@ -0,0 +1,44 @@
+package com.northcoders.recordshop.model;
+
+public class AlbumChangeEvent {
+    public enum ChangeType {
+        INSERTED,
+        UPDATED,
+        DELETED
+    }
+
+    ChangeType type;
+    long albumId;
+    Album album;
+
+    public AlbumChangeEvent(ChangeType type, long albumId, Album album) {
+        this.type = type;
+        this.albumId = albumId;
+        this.album = album;
+    }
+
+    public static AlbumChangeEvent inserted(Album album) {
+        return new AlbumChangeEvent(ChangeType.INSERTED, album.getId(), album);
+    }
+
+    public static AlbumChangeEvent updated(Album album) {
+        return new AlbumChangeEvent(ChangeType.UPDATED, album.getId(), album);
+    }
+
+    public static AlbumChangeEvent deleted(long albumId) {
+        return new AlbumChangeEvent(ChangeType.DELETED, albumId, null);
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public long getAlbumId() {
+        return albumId;
+    }
+
+    // Null for deletions
+    public Album getAlbum() {
+        return album;
+    }
+}
@@ -0,0 +1,23 @@
+package com.northcoders.recordshop.model;
+
+import java.util.List;
+
+public class AlbumLookupResult {
+    List<Album> albums;
+    List<Long> missingIds;
+
+    public AlbumLookupResult(List<Album> albums, List<Long> missingIds) {
+        this.albums = albums;
+        this.missingIds = missingIds;
+    }
+
+    // In the order their ids were asked for
+    public List<Album> getAlbums() {
+        return albums;
+    }
+
+    // Ids asked for that don't match any album
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+}
@@ -0,0 +1,42 @@
+package com.northcoders.recordshop.model;
+
+/**
+ * One committed write as sent on the change feed, numbered in the order the writes committed.
+ */
+public class CatalogChange {
+    long sequence;
+    AlbumChangeEvent.ChangeType type;
+    long albumId;
+    Long version;
+    Album album;
+
+    public CatalogChange(long sequence, AlbumChangeEvent event) {
+        this.sequence = sequence;
+        this.type = event.getType();
+        this.albumId = event.getAlbumId();
+        this.album = event.getAlbum();
+        this.version = album == null ? null : album.getVersion();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public AlbumChangeEvent.ChangeType getType() {
+        return type;
+    }
+
+    public long getAlbumId() {
+        return albumId;
+    }
+
+    // Null for deletions, and for full updates made without If-Match, where the new version isn't read back
+    public Long getVersion() {
+        return version;
+    }
+
+    // Null for deletions
+    public Album getAlbum() {
+        return album;
+    }
+}
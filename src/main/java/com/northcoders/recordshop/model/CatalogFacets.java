@@ -0,0 +1,29 @@
+package com.northcoders.recordshop.model;
+
+import java.util.Map;
+
+public class CatalogFacets {
+    long total;
+    Map<String, Long> genres;
+    Map<String, Long> decades;
+
+    public CatalogFacets(long total, Map<String, Long> genres, Map<String, Long> decades) {
+        this.total = total;
+        this.genres = genres;
+        this.decades = decades;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    // Keyed by genre display name, e.g. "Hip-Hop"
+    public Map<String, Long> getGenres() {
+        return genres;
+    }
+
+    // Keyed by decade, e.g. "1970s"
+    public Map<String, Long> getDecades() {
+        return decades;
+    }
+}
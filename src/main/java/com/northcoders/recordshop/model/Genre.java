@@ -2,6 +2,9 @@ package com.northcoders.recordshop.model;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public enum Genre {
     POP("Pop"),
     ROCK("Rock"),
@@ -14,12 +17,25 @@ public enum Genre {
     METAL("Metal"),
     CLASSICAL("Classical");
 
+    private static final Map<String, Genre> BY_NAME = new HashMap<>();
+
+    static {
+        for (Genre genre : values()) {
+            BY_NAME.put(genre.name(), genre);
+        }
+    }
+
     final String desc;
 
     Genre (String description){
         this.desc = description;
     }
 
+    // Case-insensitive lookup by constant name. Returns null for an unknown genre rather than throwing like valueOf.
+    public static Genre fromName(String name) {
+        return name == null ? null : BY_NAME.get(name.toUpperCase());
+    }
+
     @Override
     public String toString() {
         return this.desc;
@@ -0,0 +1,47 @@
+package com.northcoders.recordshop.model;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "stock")
+public class Stock {
+    @Id
+    @Column(name = "album_id", nullable = false)
+    Long albumId;
+
+    // Copies not yet leased out to a reservation pool; see StockServiceImpl
+    @Column(name = "number_in_stock", nullable = false)
+    Integer numberInStock;
+
+    @Column(name = "price_pence", nullable = false)
+    Integer pricePence;
+
+    public Stock() {
+    }
+
+    public Stock(long albumId, int numberInStock, int pricePence) {
+        this.albumId = albumId;
+        this.numberInStock = numberInStock;
+        this.pricePence = pricePence;
+    }
+
+    public Long getAlbumId() {
+        return albumId;
+    }
+
+    public Integer getNumberInStock() {
+        return numberInStock;
+    }
+
+    public void setNumberInStock(int numberInStock) {
+        this.numberInStock = numberInStock;
+    }
+
+    public Integer getPricePence() {
+        return pricePence;
+    }
+
+    public void setPricePence(int pricePence) {
+        this.pricePence = pricePence;
+    }
+}
@@ -0,0 +1,26 @@
+package com.northcoders.recordshop.model;
+
+public class StockLevel {
+    long albumId;
+    long available;
+    int pricePence;
+
+    public StockLevel(long albumId, long available, int pricePence) {
+        this.albumId = albumId;
+        this.available = available;
+        this.pricePence = pricePence;
+    }
+
+    public long getAlbumId() {
+        return albumId;
+    }
+
+    // Copies that can still be reserved, whether still in the table or already leased to this instance
+    public long getAvailable() {
+        return available;
+    }
+
+    public int getPricePence() {
+        return pricePence;
+    }
+}
@@ -0,0 +1,50 @@
+package com.northcoders.recordshop.profiling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands log lines to a background thread so request threads never wait on the log appender. When the queue is
+ * full new lines are dropped and counted rather than blocking the caller.
+ */
+public class AsyncLogSink implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger("com.northcoders.recordshop.sql");
+
+    private final BlockingQueue<String> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+
+    public AsyncLogSink(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = Thread.ofPlatform().name("sql-profiler-log").daemon().start(this::drain);
+    }
+
+    public void log(String line) {
+        if (!queue.offer(line)) {
+            dropped.increment();
+        }
+    }
+
+    public long getDroppedLines() {
+        return dropped.sum();
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                log.info(queue.take());
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    @Override
+    public void close() {
+        writer.interrupt();
+    }
+}
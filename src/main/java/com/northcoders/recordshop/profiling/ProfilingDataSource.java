@@ -0,0 +1,153 @@
+package com.northcoders.recordshop.profiling;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Wraps the connection pool so every statement executed through it is timed and reported to a {@link SqlProfiler}.
+ * A query is timed from execution until its result set is closed, so the time spent fetching rows is included and
+ * the rows read are counted.
+ */
+public class ProfilingDataSource extends DelegatingDataSource {
+    private final SqlProfiler sqlProfiler;
+
+    public ProfilingDataSource(DataSource targetDataSource, SqlProfiler sqlProfiler) {
+        super(targetDataSource);
+        this.sqlProfiler = sqlProfiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return profiled(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return profiled(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    private static <T> T profiled(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ProfilingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = ProfilingDataSource.invoke(target, method, args);
+            if (result instanceof Statement statement) {
+                // prepareStatement and prepareCall carry their SQL; plain statements get it on execute
+                String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                return profiled(method.getReturnType(), new StatementHandler(statement, sql));
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private Execution openQuery;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                finish(openQuery);
+                String executedSql = sql != null ? sql : args != null && args.length > 0 && args[0] instanceof String s ? s : "<batch>";
+                long start = System.nanoTime();
+                Object result = ProfilingDataSource.invoke(target, method, args);
+
+                if (result instanceof ResultSet resultSet) {
+                    openQuery = new Execution(executedSql, start);
+                    return profiledResultSet(resultSet, openQuery);
+                }
+                if (Boolean.TRUE.equals(result)) {
+                    // execute() produced a result set, which the caller fetches with getResultSet()
+                    openQuery = new Execution(executedSql, start);
+                    return result;
+                }
+                sqlProfiler.record(executedSql, System.nanoTime() - start, updatedRows(result));
+                return result;
+            }
+
+            Object result = ProfilingDataSource.invoke(target, method, args);
+            if (name.equals("getResultSet") && result instanceof ResultSet resultSet && openQuery != null) {
+                return profiledResultSet(resultSet, openQuery);
+            }
+            if (name.equals("close")) {
+                finish(openQuery);
+            }
+            return result;
+        }
+
+        private ResultSet profiledResultSet(ResultSet resultSet, Execution execution) {
+            return profiled(ResultSet.class, (proxy, method, args) -> {
+                Object result = ProfilingDataSource.invoke(resultSet, method, args);
+                if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                    execution.rows++;
+                } else if (method.getName().equals("close")) {
+                    finish(execution);
+                }
+                return result;
+            });
+        }
+
+        private void finish(Execution execution) {
+            if (execution == null || execution.finished) return;
+            execution.finished = true;
+            sqlProfiler.record(execution.sql, System.nanoTime() - execution.start, execution.rows);
+        }
+
+        private long updatedRows(Object result) {
+            long rows = 0;
+            if (result instanceof Number count) {
+                rows = count.longValue();
+            } else if (result instanceof int[] counts) {
+                for (int count : counts) rows += Math.max(0, count);
+            } else if (result instanceof long[] counts) {
+                for (long count : counts) rows += Math.max(0, count);
+            }
+            return rows;
+        }
+    }
+
+    private static class Execution {
+        final String sql;
+        final long start;
+        long rows;
+        boolean finished;
+
+        Execution(String sql, long start) {
+            this.sql = sql;
+            this.start = start;
+        }
+    }
+}
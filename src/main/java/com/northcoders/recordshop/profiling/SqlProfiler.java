@@ -0,0 +1,162 @@
+package com.northcoders.recordshop.profiling;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects every SQL statement run through a {@link ProfilingDataSource}. Keeps running totals per statement, the
+ * most recent executions and N+1 findings in fixed-size ring buffers, and writes slow statements to an
+ * {@link AsyncLogSink}. A statement run at least nPlusOneThreshold times while serving a single request is
+ * reported as a likely N+1 query.
+ */
+public class SqlProfiler {
+    private final long slowThresholdNanos;
+    private final int nPlusOneThreshold;
+    private final boolean logAllStatements;
+    private final AsyncLogSink logSink;
+
+    private final Map<String, StatementStats> stats = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<StatementExecution> recent;
+    private final AtomicLong recentCount = new AtomicLong();
+    private final AtomicReferenceArray<NPlusOneFinding> findings;
+    private final AtomicLong findingCount = new AtomicLong();
+    private final ThreadLocal<RequestStatements> currentRequest = new ThreadLocal<>();
+
+    public SqlProfiler(int bufferSize, long slowThresholdMillis, int nPlusOneThreshold, boolean logAllStatements, AsyncLogSink logSink) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.logAllStatements = logAllStatements;
+        this.logSink = logSink;
+        this.recent = new AtomicReferenceArray<>(bufferSize);
+        this.findings = new AtomicReferenceArray<>(bufferSize);
+    }
+
+    public record StatementExecution(Instant executedAt, String request, String sql, double elapsedMillis, long rows, boolean slow) {
+    }
+
+    public record StatementSummary(String sql, long count, double totalMillis, double meanMillis, double maxMillis, long rows) {
+    }
+
+    public record NPlusOneFinding(Instant detectedAt, String request, String sql, int executions) {
+    }
+
+    private static class StatementStats {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    private static class RequestStatements {
+        final String request;
+        final Map<String, Integer> executions = new HashMap<>();
+
+        RequestStatements(String request) {
+            this.request = request;
+        }
+    }
+
+    public void record(String sql, long elapsedNanos, long rows) {
+        RequestStatements requestStatements = currentRequest.get();
+        String request = requestStatements == null ? null : requestStatements.request;
+        boolean slow = elapsedNanos >= slowThresholdNanos;
+
+        StatementStats statementStats = stats.computeIfAbsent(sql, key -> new StatementStats());
+        statementStats.count.increment();
+        statementStats.totalNanos.add(elapsedNanos);
+        statementStats.rows.add(rows);
+        statementStats.maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+
+        StatementExecution execution = new StatementExecution(Instant.now(), request, sql, toMillis(elapsedNanos), rows, slow);
+        append(recent, recentCount, execution);
+
+        if (requestStatements != null) {
+            requestStatements.executions.merge(sql, 1, Integer::sum);
+        }
+        if (slow || logAllStatements) {
+            logSink.log((slow ? "Slow statement " : "Statement ") + "(" + execution.elapsedMillis() + " ms, " + rows + " rows"
+                    + (request == null ? "" : ", " + request) + "): " + sql);
+        }
+    }
+
+    public void beginRequest(String request) {
+        currentRequest.set(new RequestStatements(request));
+    }
+
+    public void endRequest() {
+        RequestStatements requestStatements = currentRequest.get();
+        currentRequest.remove();
+        if (requestStatements == null) return;
+
+        requestStatements.executions.forEach((sql, executions) -> {
+            if (executions >= nPlusOneThreshold) {
+                append(findings, findingCount, new NPlusOneFinding(Instant.now(), requestStatements.request, sql, executions));
+                logSink.log("Possible N+1 query: " + requestStatements.request + " ran " + executions + " times: " + sql);
+            }
+        });
+    }
+
+    // Heaviest statements first
+    public List<StatementSummary> getStatementSummaries() {
+        List<StatementSummary> summaries = new ArrayList<>();
+        stats.forEach((sql, statementStats) -> {
+            long count = statementStats.count.sum();
+            long totalNanos = statementStats.totalNanos.sum();
+            summaries.add(new StatementSummary(sql, count, toMillis(totalNanos), count == 0 ? 0 : toMillis(totalNanos / count),
+                    toMillis(statementStats.maxNanos.get()), statementStats.rows.sum()));
+        });
+        summaries.sort(Comparator.comparingDouble(StatementSummary::totalMillis).reversed());
+        return summaries;
+    }
+
+    public List<StatementExecution> getRecentStatements() {
+        return snapshot(recent, recentCount);
+    }
+
+    public List<StatementExecution> getSlowStatements() {
+        return getRecentStatements().stream().filter(StatementExecution::slow).toList();
+    }
+
+    public List<NPlusOneFinding> getNPlusOneFindings() {
+        return snapshot(findings, findingCount);
+    }
+
+    public long getDroppedLogLines() {
+        return logSink.getDroppedLines();
+    }
+
+    public void reset() {
+        stats.clear();
+        for (int i = 0; i < recent.length(); i++) {
+            recent.set(i, null);
+            findings.set(i, null);
+        }
+    }
+
+    private static <T> void append(AtomicReferenceArray<T> ring, AtomicLong count, T entry) {
+        ring.set((int) (count.getAndIncrement() % ring.length()), entry);
+    }
+
+    // Oldest first; slots cleared by reset are skipped
+    private static <T> List<T> snapshot(AtomicReferenceArray<T> ring, AtomicLong count) {
+        long end = count.get();
+        long start = Math.max(0, end - ring.length());
+        List<T> entries = new ArrayList<>((int) (end - start));
+        for (long i = start; i < end; i++) {
+            T entry = ring.get((int) (i % ring.length()));
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,33 @@
+package com.northcoders.recordshop.profiling;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Endpoint(id = "sqlprofile")
+public class SqlProfilerEndpoint {
+    private final SqlProfiler sqlProfiler;
+
+    public SqlProfilerEndpoint(SqlProfiler sqlProfiler) {
+        this.sqlProfiler = sqlProfiler;
+    }
+
+    @ReadOperation
+    public Map<String, Object> sqlProfile() {
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("statements", sqlProfiler.getStatementSummaries());
+        profile.put("slowStatements", sqlProfiler.getSlowStatements());
+        profile.put("nPlusOne", sqlProfiler.getNPlusOneFindings());
+        profile.put("recentStatements", sqlProfiler.getRecentStatements());
+        profile.put("droppedLogLines", sqlProfiler.getDroppedLogLines());
+        return profile;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        sqlProfiler.reset();
+    }
+}
@@ -0,0 +1,31 @@
+package com.northcoders.recordshop.profiling;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Marks the start and end of each request so the profiler can attribute statements to it and spot N+1 queries.
+ */
+public class SqlProfilerFilter extends OncePerRequestFilter {
+    private final SqlProfiler sqlProfiler;
+
+    public SqlProfilerFilter(SqlProfiler sqlProfiler) {
+        this.sqlProfiler = sqlProfiler;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        sqlProfiler.beginRequest(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            sqlProfiler.endRequest();
+        }
+    }
+}
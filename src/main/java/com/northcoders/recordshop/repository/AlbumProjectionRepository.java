@@ -0,0 +1,14 @@
+package com.northcoders.recordshop.repository;
+
+import com.northcoders.recordshop.model.Album;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+// Custom fragment of RecordShopRepository, implemented in AlbumProjectionRepositoryImpl
+public interface AlbumProjectionRepository {
+    // Selects only the given Album attributes of up to `limit` matching rows in id order. Each row comes back as a
+    // map from attribute name to value, in the order the attributes were given, and no entities are loaded.
+    List<Map<String, Object>> findFieldsBy (Specification<Album> specification, List<String> fields, int limit);
+}
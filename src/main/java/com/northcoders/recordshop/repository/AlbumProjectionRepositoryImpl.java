@@ -0,0 +1,51 @@
+package com.northcoders.recordshop.repository;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AlbumProjectionRepositoryImpl implements AlbumProjectionRepository {
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findFieldsBy(Specification<Album> specification, List<String> fields, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Album> root = query.from(Album.class);
+
+        // A tuple query reads just these columns into plain values; nothing enters the persistence context
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            selections.add(root.get(field).alias(field));
+        }
+        query.multiselect(selections);
+
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null) query.where(predicate);
+        query.orderBy(builder.asc(root.get("id")));
+
+        List<Tuple> tuples = entityManager.createQuery(query).setMaxResults(limit).getResultList();
+
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                Object value = tuple.get(field);
+                // Written by description, as Album#getGenre does
+                row.put(field, value instanceof Genre genre ? genre.toString() : value);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,34 @@
+package com.northcoders.recordshop.repository;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import org.springframework.data.jpa.domain.Specification;
+
+public class AlbumSpecifications {
+    private AlbumSpecifications() {
+    }
+
+    public static Specification<Album> hasId(long id) {
+        return (root, query, builder) -> builder.equal(root.get("id"), id);
+    }
+
+    public static Specification<Album> idGreaterThan(long after) {
+        return (root, query, builder) -> builder.greaterThan(root.get("id"), after);
+    }
+
+    public static Specification<Album> hasArtist(String artist) {
+        return (root, query, builder) -> builder.equal(root.get("artist"), artist);
+    }
+
+    public static Specification<Album> hasReleaseYear(Integer releaseYear) {
+        return (root, query, builder) -> builder.equal(root.get("releaseYear"), releaseYear);
+    }
+
+    public static Specification<Album> hasGenre(Genre genre) {
+        return (root, query, builder) -> builder.equal(root.get("genre"), genre);
+    }
+
+    public static Specification<Album> hasAlbumName(String albumName) {
+        return (root, query, builder) -> builder.equal(root.get("albumName"), albumName);
+    }
+}
@@ -2,15 +2,76 @@ package com.northcoders.recordshop.repository;
 
 import com.northcoders.recordshop.model.Album;
 import com.northcoders.recordshop.model.Genre;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface RecordShopRepository extends CrudRepository<Album, Long> {
-    List<Album> findByArtist (String artist);
-    List<Album> findByReleaseYear (Integer year);
-    List<Album> findByGenre (Genre genre);
-    List<Album> findByAlbumName (String albumName);
+public interface RecordShopRepository extends CrudRepository<Album, Long>, JpaSpecificationExecutor<Album>, AlbumProjectionRepository {
+    // Keyset pages: every finder seeks past the last id the client saw and reads at most `limit` rows in id order,
+    // so a deep page costs the same as the first one.
+    List<Album> findByIdGreaterThanOrderByIdAsc (Long after, Limit limit);
+    List<Album> findByArtistAndIdGreaterThanOrderByIdAsc (String artist, Long after, Limit limit);
+    List<Album> findByReleaseYearAndIdGreaterThanOrderByIdAsc (Integer year, Long after, Limit limit);
+    List<Album> findByGenreAndIdGreaterThanOrderByIdAsc (Genre genre, Long after, Limit limit);
+    List<Album> findByAlbumNameAndIdGreaterThanOrderByIdAsc (String albumName, Long after, Limit limit);
+
+    // Read-only cursor over the whole table for exports; the JDBC driver hands rows over in fixed-size batches.
+    // Must be consumed inside a transaction and closed afterwards.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Album> streamAllByOrderByIdAsc ();
+
+    // Partial update in a single statement: any field passed as null keeps its current value.
+    // Returns the number of rows changed, so 0 means there is no album with that id.
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Album a set " +
+            "a.albumName = coalesce(:albumName, a.albumName), " +
+            "a.artist = coalesce(:artist, a.artist), " +
+            "a.releaseYear = coalesce(:releaseYear, a.releaseYear), " +
+            "a.genre = coalesce(:genre, a.genre), " +
+            "a.version = a.version + 1 " +
+            "where a.id = :id")
+    int updateAlbumFields (@Param("id") Long id,
+                           @Param("albumName") String albumName,
+                           @Param("artist") String artist,
+                           @Param("releaseYear") Integer releaseYear,
+                           @Param("genre") Genre genre);
+
+    // The same update, made only if the album is still at the version the caller read.
+    // 0 rows means the album has since been changed or deleted.
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Album a set " +
+            "a.albumName = coalesce(:albumName, a.albumName), " +
+            "a.artist = coalesce(:artist, a.artist), " +
+            "a.releaseYear = coalesce(:releaseYear, a.releaseYear), " +
+            "a.genre = coalesce(:genre, a.genre), " +
+            "a.version = a.version + 1 " +
+            "where a.id = :id and a.version = :version")
+    int updateAlbumFieldsIfVersion (@Param("id") Long id,
+                                    @Param("albumName") String albumName,
+                                    @Param("artist") String artist,
+                                    @Param("releaseYear") Integer releaseYear,
+                                    @Param("genre") Genre genre,
+                                    @Param("version") Long version);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Album a where a.id = :id and a.version = :version")
+    int deleteByIdIfVersion (@Param("id") Long id, @Param("version") Long version);
 }
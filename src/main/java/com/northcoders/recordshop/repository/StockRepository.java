@@ -0,0 +1,34 @@
+package com.northcoders.recordshop.repository;
+
+import com.northcoders.recordshop.model.Stock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface StockRepository extends CrudRepository<Stock, Long> {
+    // Holds the row lock until the surrounding transaction ends. Only used to take a lease of several copies at
+    // once, never once per reservation.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Stock s where s.albumId = :albumId")
+    Optional<Stock> findByIdForUpdate (@Param("albumId") Long albumId);
+
+    // Adds copies in a single statement, and sets the price unless it is null.
+    // Returns the number of rows changed, so 0 means the album has no stock row yet.
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Stock s set " +
+            "s.numberInStock = s.numberInStock + :quantity, " +
+            "s.pricePence = coalesce(:pricePence, s.pricePence) " +
+            "where s.albumId = :albumId")
+    int addStock (@Param("albumId") Long albumId,
+                  @Param("quantity") int quantity,
+                  @Param("pricePence") Integer pricePence);
+}
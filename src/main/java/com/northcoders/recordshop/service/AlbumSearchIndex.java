@@ -0,0 +1,234 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.model.Album;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Word index over album names and artists for search-as-you-type. Text is lower-cased, accents are stripped and it
+ * is split into words, so "beyonce" finds "Beyoncé" and "beatles" finds "The Beatles". Multi-word names are also
+ * indexed run together, so "acdc" finds "AC/DC".
+ * <p>
+ * Every word of a query must match. The last word also matches as a prefix, so results appear while it is still
+ * being typed. Words of four letters or more also match with one typo, or two typos from eight letters. Typo
+ * candidates come from the trigrams they share with the query word and are confirmed by edit distance, so only a
+ * handful of words are ever compared. Results are ranked by how well they matched, exact words first, then
+ * prefixes, then typos.
+ */
+@Component
+@ConditionalOnProperty(name = "recordshop.search-index.enabled", havingValue = "true")
+public class AlbumSearchIndex extends InMemoryAlbumIndex {
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+
+    private static final double EXACT_SCORE = 3;
+    private static final double PREFIX_SCORE = 2;
+    private static final double TYPO_SCORE = 1;
+    // A one-letter prefix can match thousands of words; beyond this many the rest are not worth ranking
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final Map<Long, Album> albums = new HashMap<>();
+    private final Map<String, Set<Long>> wordAlbums = new HashMap<>();
+    private final TreeSet<String> sortedWords = new TreeSet<>();
+    private final Map<String, Set<String>> trigramWords = new HashMap<>();
+
+    /**
+     * Up to limit albums matching the query, best match first. The albums returned are the index's own copies and
+     * must not be modified.
+     */
+    public List<Album> search(String query, int limit) {
+        List<String> queryWords = new ArrayList<>(words(query));
+        if (queryWords.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            List<Map<Long, Double>> wordMatches = new ArrayList<>();
+            for (int i = 0; i < queryWords.size(); i++) {
+                Map<Long, Double> matches = match(queryWords.get(i), i == queryWords.size() - 1);
+                if (matches.isEmpty()) return List.of();
+                wordMatches.add(matches);
+            }
+
+            // Start from the rarest word and keep the albums every other word also matched
+            wordMatches.sort(Comparator.comparingInt(Map::size));
+            Map<Long, Double> scores = new HashMap<>(wordMatches.get(0));
+            for (Map<Long, Double> matches : wordMatches.subList(1, wordMatches.size())) {
+                scores.entrySet().removeIf(score -> !matches.containsKey(score.getKey()));
+                scores.replaceAll((id, score) -> score + matches.get(id));
+            }
+
+            return top(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> match(String word, boolean prefix) {
+        Map<Long, Double> matches = new HashMap<>();
+        addMatches(matches, word, EXACT_SCORE);
+
+        if (prefix) {
+            int expansions = 0;
+            for (String completion : sortedWords.subSet(word, false, word + Character.MAX_VALUE, false)) {
+                addMatches(matches, completion, PREFIX_SCORE);
+                if (++expansions == MAX_PREFIX_EXPANSIONS) break;
+            }
+        }
+
+        int maxTypos = word.length() < 4 ? 0 : word.length() < 8 ? 1 : 2;
+        if (maxTypos > 0) {
+            for (String candidate : typoCandidates(word, maxTypos)) {
+                addMatches(matches, candidate, TYPO_SCORE);
+            }
+        }
+        return matches;
+    }
+
+    private void addMatches(Map<Long, Double> matches, String word, double score) {
+        for (Long id : wordAlbums.getOrDefault(word, Set.of())) {
+            matches.merge(id, score, Math::max);
+        }
+    }
+
+    private List<String> typoCandidates(String word, int maxTypos) {
+        Set<String> trigrams = trigrams(word);
+        Map<String, Integer> sharedTrigrams = new HashMap<>();
+        for (String trigram : trigrams) {
+            for (String candidate : trigramWords.getOrDefault(trigram, Set.of())) {
+                if (Math.abs(candidate.length() - word.length()) <= maxTypos) sharedTrigrams.merge(candidate, 1, Integer::sum);
+            }
+        }
+
+        // Each typo breaks at most four of a word's trigrams (a swap of neighbouring letters touches four)
+        int needed = Math.max(1, trigrams.size() - 4 * maxTypos);
+        List<String> candidates = new ArrayList<>();
+        sharedTrigrams.forEach((candidate, shared) -> {
+            if (shared >= needed && !candidate.equals(word) && editDistance(word, candidate, maxTypos) <= maxTypos) {
+                candidates.add(candidate);
+            }
+        });
+        return candidates;
+    }
+
+    // Best scores first, ties by id, keeping only limit entries in the heap
+    private List<Album> top(Map<Long, Double> scores, int limit) {
+        Comparator<Map.Entry<Long, Double>> ranking = Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.<Long, Double>comparingByKey());
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(ranking.reversed());
+        for (Map.Entry<Long, Double> score : scores.entrySet()) {
+            best.add(score);
+            if (best.size() > limit) best.poll();
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(best);
+        ranked.sort(ranking);
+        List<Album> resultList = new ArrayList<>(ranked.size());
+        for (Map.Entry<Long, Double> score : ranked) {
+            resultList.add(albums.get(score.getKey()));
+        }
+        return resultList;
+    }
+
+    @Override
+    protected void put(Album album) {
+        long id = album.getId();
+        remove(id);
+
+        Album copy = new Album(id, album.getAlbumName(), album.getArtist(), album.getReleaseYear(), album.getGenreAsGenre());
+        albums.put(id, copy);
+        for (String word : albumWords(copy)) {
+            Set<Long> ids = wordAlbums.computeIfAbsent(word, key -> new HashSet<>());
+            if (ids.isEmpty()) {
+                sortedWords.add(word);
+                for (String trigram : trigrams(word)) {
+                    trigramWords.computeIfAbsent(trigram, key -> new HashSet<>()).add(word);
+                }
+            }
+            ids.add(id);
+        }
+    }
+
+    @Override
+    protected void remove(long id) {
+        Album old = albums.remove(id);
+        if (old == null) return;
+
+        for (String word : albumWords(old)) {
+            Set<Long> ids = wordAlbums.get(word);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                wordAlbums.remove(word);
+                sortedWords.remove(word);
+                for (String trigram : trigrams(word)) {
+                    Set<String> words = trigramWords.get(trigram);
+                    words.remove(word);
+                    if (words.isEmpty()) trigramWords.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> albumWords(Album album) {
+        Set<String> words = new HashSet<>();
+        for (String text : new String[]{album.getAlbumName(), album.getArtist()}) {
+            List<String> textWords = words(text);
+            words.addAll(textWords);
+            if (textWords.size() > 1) words.add(String.join("", textWords));
+        }
+        return words;
+    }
+
+    static List<String> words(String text) {
+        if (text == null) return List.of();
+        String normalized = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+
+        List<String> words = new ArrayList<>();
+        for (String word : WORD_SEPARATORS.split(normalized)) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return words;
+    }
+
+    // Padded so the first and last letters get trigrams of their own
+    private static Set<String> trigrams(String word) {
+        String padded = "$" + word + "$";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    // Optimal string alignment distance (a swap of neighbouring letters counts as one typo), giving up early
+    // once it must exceed max
+    static int editDistance(String a, String b, int max) {
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previousPrevious[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) return max + 1;
+
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+}
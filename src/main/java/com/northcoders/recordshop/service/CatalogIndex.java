@@ -0,0 +1,157 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.CatalogFacets;
+import com.northcoders.recordshop.model.Genre;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * In-memory copy of the catalog for answering filter combinations and facet counts without the database.
+ * Each genre and release year has a bitmap with a bit set for every album id in it, so a genre + year query is one
+ * bitmap AND. Artists map to the sorted ids of their albums, which is small enough to filter directly.
+ * <p>
+ * If ids ever outgrow what a bitmap can index, the index stops reporting itself ready and callers go back to the
+ * database.
+ */
+@Component
+@ConditionalOnProperty(name = "recordshop.catalog-index.enabled", havingValue = "true")
+public class CatalogIndex extends InMemoryAlbumIndex {
+    private final Map<Long, Album> albums = new HashMap<>();
+    private final BitSet allIds = new BitSet();
+    private final Map<Genre, BitSet> genreIds = new EnumMap<>(Genre.class);
+    private final Map<Integer, BitSet> releaseYearIds = new HashMap<>();
+    private final Map<String, TreeSet<Long>> artistIds = new HashMap<>();
+    private boolean idOutOfRange;
+
+    /**
+     * Albums matching every non-null filter with an id greater than after, in id order, at most limit of them.
+     * The albums returned are the index's own copies and must not be modified.
+     */
+    public List<Album> find(String artist, Integer releaseYear, Genre genre, String albumName, long after, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Album> resultList = new ArrayList<>();
+            if (after >= Integer.MAX_VALUE) return resultList;
+
+            if (artist != null) {
+                TreeSet<Long> ids = artistIds.get(artist);
+                if (ids == null) return resultList;
+
+                for (Long id : ids.tailSet(after, false)) {
+                    Album album = albums.get(id);
+                    if (matches(album, releaseYear, genre, albumName)) resultList.add(album);
+                    if (resultList.size() == limit) break;
+                }
+                return resultList;
+            }
+
+            BitSet ids = intersect(releaseYear, genre);
+            for (int id = ids.nextSetBit((int) after + 1); id >= 0 && resultList.size() < limit; id = ids.nextSetBit(id + 1)) {
+                Album album = albums.get((long) id);
+                if (albumName == null || albumName.equals(album.getAlbumName())) resultList.add(album);
+            }
+            return resultList;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * How many albums matching the filters fall in each genre and each decade. Null filters match everything.
+     */
+    public CatalogFacets facets(String artist, Integer releaseYear, Genre genre, String albumName) {
+        lock.readLock().lock();
+        try {
+            BitSet ids;
+            if (artist != null) {
+                ids = new BitSet();
+                for (Long id : artistIds.getOrDefault(artist, new TreeSet<>())) {
+                    if (matches(albums.get(id), releaseYear, genre, albumName)) ids.set(id.intValue());
+                }
+            } else {
+                ids = intersect(releaseYear, genre);
+                if (albumName != null) {
+                    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                        if (!albumName.equals(albums.get((long) id).getAlbumName())) ids.clear(id);
+                    }
+                }
+            }
+
+            // One scratch bitmap reused for every intersection rather than a copy per genre and year
+            BitSet scratch = new BitSet();
+            Map<String, Long> genreCounts = new LinkedHashMap<>();
+            for (Genre facet : Genre.values()) {
+                genreCounts.put(facet.toString(), (long) intersectionSize(ids, genreIds.get(facet), scratch));
+            }
+
+            Map<String, Long> decadeCounts = new TreeMap<>();
+            releaseYearIds.forEach((year, yearIds) -> {
+                int count = intersectionSize(ids, yearIds, scratch);
+                if (count > 0) decadeCounts.merge(Math.floorDiv(year, 10) * 10 + "s", (long) count, Long::sum);
+            });
+
+            return new CatalogFacets(ids.cardinality(), genreCounts, decadeCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet intersect(Integer releaseYear, Genre genre) {
+        BitSet ids = (BitSet) allIds.clone();
+        if (releaseYear != null) ids.and(releaseYearIds.getOrDefault(releaseYear, new BitSet()));
+        if (genre != null) ids.and(genreIds.getOrDefault(genre, new BitSet()));
+        return ids;
+    }
+
+    private static int intersectionSize(BitSet ids, BitSet other, BitSet scratch) {
+        if (other == null) return 0;
+        scratch.clear();
+        scratch.or(ids);
+        scratch.and(other);
+        return scratch.cardinality();
+    }
+
+    private static boolean matches(Album album, Integer releaseYear, Genre genre, String albumName) {
+        return (releaseYear == null || releaseYear.equals(album.getReleaseYear()))
+                && (genre == null || genre == album.getGenreAsGenre())
+                && (albumName == null || albumName.equals(album.getAlbumName()));
+    }
+
+    @Override
+    protected boolean isUsable() {
+        return !idOutOfRange;
+    }
+
+    @Override
+    protected void put(Album album) {
+        long id = album.getId();
+        if (id > Integer.MAX_VALUE) {
+            idOutOfRange = true;
+            return;
+        }
+        remove(id);
+
+        Album copy = new Album(id, album.getAlbumName(), album.getArtist(), album.getReleaseYear(), album.getGenreAsGenre());
+        albums.put(id, copy);
+        allIds.set((int) id);
+        genreIds.computeIfAbsent(copy.getGenreAsGenre(), key -> new BitSet()).set((int) id);
+        releaseYearIds.computeIfAbsent(copy.getReleaseYear(), key -> new BitSet()).set((int) id);
+        artistIds.computeIfAbsent(copy.getArtist(), key -> new TreeSet<>()).add(id);
+    }
+
+    @Override
+    protected void remove(long id) {
+        Album old = albums.remove(id);
+        if (old == null) return;
+
+        allIds.clear((int) id);
+        genreIds.get(old.getGenreAsGenre()).clear((int) id);
+        releaseYearIds.get(old.getReleaseYear()).clear((int) id);
+        TreeSet<Long> ids = artistIds.get(old.getArtist());
+        ids.remove(id);
+        if (ids.isEmpty()) artistIds.remove(old.getArtist());
+    }
+}
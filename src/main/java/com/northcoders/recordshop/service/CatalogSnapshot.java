@@ -0,0 +1,254 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm start for album lookups. The catalog is written to a {@link CatalogSnapshotFile} every
+ * recordshop.snapshot.interval-ms and on shutdown. On startup the last one is memory-mapped, so getAlbumById can
+ * answer from it straight away instead of sending every first read of an album to the database.
+ * <p>
+ * Once the application is ready, the snapshot is reconciled with the database in the background: one scan of
+ * (id, version) finds albums inserted, updated or deleted since it was written, and only those rows are loaded.
+ * Until then, reads may see the catalog as it was when the snapshot was written. Writes made through this instance
+ * are followed from then on. Writes made through other instances are not, so the snapshot stops answering after
+ * recordshop.snapshot.serve-for-ms, by which time the album cache has taken over.
+ */
+@Component
+@ConditionalOnProperty(name = "recordshop.snapshot.enabled", havingValue = "true")
+public class CatalogSnapshot {
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+    private static final int RECONCILE_BATCH_SIZE = 1000;
+    // Stands in for an album the snapshot must not answer for: deleted, or changed to a version we don't know.
+    // Its version outranks any real one, so a reconcile that read the row earlier can't bring it back.
+    private static final Album GO_TO_DATABASE = new Album();
+
+    static {
+        GO_TO_DATABASE.setVersion(Long.MAX_VALUE);
+    }
+
+    @Autowired
+    RecordShopService recordShopService;
+
+    @Autowired
+    RecordShopRepository recordShopRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Value("${recordshop.snapshot.file:catalog.snapshot}")
+    String file = "catalog.snapshot";
+
+    @Value("${recordshop.snapshot.interval-ms:900000}")
+    long intervalMillis = 900000;
+
+    @Value("${recordshop.snapshot.serve-for-ms:600000}")
+    long serveForMillis = 600000;
+
+    private volatile CatalogSnapshotFile snapshot;
+    // Albums that differ from the snapshot, found by reconciling or written since startup
+    private final Map<Long, Album> changes = new ConcurrentHashMap<>();
+    private volatile boolean reconciled;
+    private ScheduledExecutorService snapshotter;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void start() {
+        hits = Counter.builder("recordshop.snapshot.reads").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("recordshop.snapshot.reads").tag("result", "miss").register(meterRegistry);
+
+        Path path = Path.of(file);
+        if (Files.exists(path)) {
+            long startedAt = System.nanoTime();
+            try {
+                snapshot = CatalogSnapshotFile.open(path);
+                log.info("Mapped catalog snapshot of {} albums in {} ms", snapshot.size(), (System.nanoTime() - startedAt) / 1_000_000);
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable catalog snapshot {}", path.toAbsolutePath(), e);
+            }
+        }
+
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        snapshotter.execute(this::reconcileQuietly);
+        snapshotter.scheduleWithFixedDelay(this::writeQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        snapshotter.schedule(this::stopServing, serveForMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The album as of the snapshot plus everything reconciled and written since, or null when the caller should go
+     * to the database: no snapshot, an album it doesn't cover, or one deleted or changed in a way it can't follow.
+     */
+    public Album find(long id) {
+        CatalogSnapshotFile current = snapshot;
+        if (current == null) return null;
+
+        Album album = changes.get(id);
+        if (album == null) album = current.find(id);
+
+        if (album == null || album == GO_TO_DATABASE) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return album;
+    }
+
+    public boolean isServing() {
+        return snapshot != null;
+    }
+
+    public boolean isReconciled() {
+        return reconciled;
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlbumChange(AlbumChangeEvent event) {
+        // Nothing to keep up to date once lookups have stopped using the snapshot
+        if (snapshot == null) return;
+
+        Album album = event.getAlbum();
+        // A full PUT without If-Match doesn't read back the version it reached
+        if (album == null || album.getVersion() == null) {
+            changes.put(event.getAlbumId(), GO_TO_DATABASE);
+        } else {
+            changes.merge(event.getAlbumId(), album, CatalogSnapshot::newer);
+        }
+    }
+
+    public void reconcile() {
+        CatalogSnapshotFile current = snapshot;
+        if (current == null) {
+            reconciled = true;
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        List<Long> changedIds = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        int[] next = {0};
+        // Both sides are in id order, so they can be merged in one pass
+        jdbcTemplate.query("select id, version from album order by id", row -> {
+            long id = row.getLong(1);
+            long version = row.getLong(2);
+            while (next[0] < current.size() && current.idAt(next[0]) < id) {
+                deletedIds.add(current.idAt(next[0]++));
+            }
+            if (next[0] < current.size() && current.idAt(next[0]) == id) {
+                if (current.versionAt(next[0]++) != version) changedIds.add(id);
+            } else {
+                changedIds.add(id);
+            }
+        });
+        while (next[0] < current.size()) {
+            deletedIds.add(current.idAt(next[0]++));
+        }
+
+        for (Long id : deletedIds) {
+            changes.put(id, GO_TO_DATABASE);
+        }
+        for (int from = 0; from < changedIds.size(); from += RECONCILE_BATCH_SIZE) {
+            List<Long> batch = changedIds.subList(from, Math.min(changedIds.size(), from + RECONCILE_BATCH_SIZE));
+            for (Album album : recordShopRepository.findAllById(batch)) {
+                changes.merge(album.getId(), album, CatalogSnapshot::newer);
+            }
+        }
+
+        // Lookups answered from the snapshot before now may have cached an album that has since changed
+        Cache albumCache = cacheManager.getCache(RecordShopServiceImpl.ALBUM_CACHE);
+        if (albumCache != null) {
+            deletedIds.forEach(albumCache::evict);
+            changedIds.forEach(albumCache::evict);
+        }
+
+        reconciled = true;
+        log.info("Reconciled catalog snapshot with the database in {} ms: {} albums inserted or changed and {} deleted since it was written",
+                (System.nanoTime() - startedAt) / 1_000_000, changedIds.size(), deletedIds.size());
+    }
+
+    public int write() throws IOException {
+        long startedAt = System.nanoTime();
+        int albumCount = CatalogSnapshotFile.write(Path.of(file), recordShopService::exportAllAlbums);
+        log.info("Wrote catalog snapshot of {} albums in {} ms", albumCount, (System.nanoTime() - startedAt) / 1_000_000);
+        return albumCount;
+    }
+
+    // Lookups go to the database again, and the mapping is released once nothing refers to it
+    public void stopServing() {
+        snapshot = null;
+        changes.clear();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        snapshotter.shutdownNow();
+        snapshotter.awaitTermination(10, TimeUnit.SECONDS);
+        // So the next start, typically the next deploy, begins from the catalog as it is now
+        writeQuietly();
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.error("Failed to reconcile the catalog snapshot, lookups will go to the database", e);
+            stopServing();
+        }
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write the catalog snapshot", e);
+        }
+    }
+
+    private static Album newer(Album current, Album candidate) {
+        return candidate.getVersion() > current.getVersion() ? candidate : current;
+    }
+}
@@ -0,0 +1,237 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The whole catalog in one read-only file, memory-mapped so lookups read straight from the page cache.
+ * <p>
+ * Layout, big-endian: a 32 byte header (magic, format, album count, heap size, max id, heap offset), then one 40 byte
+ * record per album in id order (id, version, release year, genre ordinal, and the offset and length of the album
+ * name and artist), then a heap of UTF-8 strings the records point into. Each artist is only stored once.
+ */
+public class CatalogSnapshotFile {
+    private static final int MAGIC = 0x52534353; // "RSCS"
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 40;
+
+    private final ByteBuffer buffer;
+    private final int albumCount;
+    private final long maxId;
+    private final int heapOffset;
+
+    private CatalogSnapshotFile(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) throw new IOException("Not a catalog snapshot");
+        if (buffer.getInt(4) != FORMAT) throw new IOException("Unknown catalog snapshot format " + buffer.getInt(4));
+
+        this.buffer = buffer;
+        this.albumCount = buffer.getInt(8);
+        this.maxId = buffer.getLong(16);
+        long heapStart = buffer.getLong(24);
+        if (albumCount < 0 || heapStart != HEADER_SIZE + (long) albumCount * RECORD_SIZE
+                || heapStart + buffer.getInt(12) != buffer.limit()) {
+            throw new IOException("Truncated catalog snapshot");
+        }
+        this.heapOffset = (int) heapStart;
+    }
+
+    public static CatalogSnapshotFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Catalog snapshot too large to map");
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CatalogSnapshotFile(mapped);
+        }
+    }
+
+    /**
+     * Writes every album the source hands over, which must be in id order, to a temporary file that then replaces
+     * the target. Readers that already have the old file mapped keep reading it. Returns the number of albums.
+     */
+    public static int write(Path target, Consumer<Consumer<Album>> source) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path records = Files.createTempFile(directory, "records", ".tmp");
+        Path heap = Files.createTempFile(directory, "heap", ".tmp");
+        Path snapshot = Files.createTempFile(directory, "snapshot", ".tmp");
+
+        try {
+            SnapshotWriter writer = new SnapshotWriter(records, heap);
+            try (writer) {
+                source.accept(writer::add);
+            }
+            writer.check();
+
+            try (FileChannel out = FileChannel.open(snapshot, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 FileChannel recordsIn = FileChannel.open(records, StandardOpenOption.READ);
+                 FileChannel heapIn = FileChannel.open(heap, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                        .putInt(MAGIC)
+                        .putInt(FORMAT)
+                        .putInt(writer.albumCount)
+                        .putInt((int) writer.heapSize)
+                        .putLong(writer.lastId)
+                        .putLong(HEADER_SIZE + (long) writer.albumCount * RECORD_SIZE)
+                        .flip();
+                while (header.hasRemaining()) out.write(header);
+                transfer(recordsIn, out);
+                transfer(heapIn, out);
+                out.force(true);
+            }
+            Files.move(snapshot, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return writer.albumCount;
+        } finally {
+            Files.deleteIfExists(records);
+            Files.deleteIfExists(heap);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    private static void transfer(FileChannel from, FileChannel to) throws IOException {
+        long position = 0;
+        long size = from.size();
+        while (position < size) {
+            position += from.transferTo(position, size - position, to);
+        }
+    }
+
+    public int size() {
+        return albumCount;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public long idAt(int index) {
+        return buffer.getLong(record(index));
+    }
+
+    public long versionAt(int index) {
+        return buffer.getLong(record(index) + 8);
+    }
+
+    public Album albumAt(int index) {
+        int record = record(index);
+        Album album = new Album(
+                buffer.getLong(record),
+                string(buffer.getInt(record + 24), buffer.getInt(record + 28)),
+                string(buffer.getInt(record + 32), buffer.getInt(record + 36)),
+                buffer.getInt(record + 16),
+                Genre.values()[buffer.getInt(record + 20)]);
+        album.setVersion(buffer.getLong(record + 8));
+        return album;
+    }
+
+    // Binary search over the records; -1 if the id isn't in the snapshot
+    public int indexOf(long id) {
+        int low = 0;
+        int high = albumCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = idAt(middle);
+            if (middleId < id) low = middle + 1;
+            else if (middleId > id) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    public Album find(long id) {
+        int index = indexOf(id);
+        return index < 0 ? null : albumAt(index);
+    }
+
+    private int record(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    // Absolute reads only, so any number of threads can share the buffer
+    private String string(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(heapOffset + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class SnapshotWriter implements AutoCloseable {
+        private final DataOutputStream records;
+        private final DataOutputStream heap;
+        private final Map<String, Integer> artistOffsets = new HashMap<>();
+        private int albumCount;
+        private long lastId;
+        private long heapSize;
+        private IOException failure;
+
+        private SnapshotWriter(Path records, Path heap) throws IOException {
+            this.records = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(records)));
+            this.heap = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(heap)));
+        }
+
+        // Called from inside the source's export, which can't throw IOException, so the first failure is kept
+        private void add(Album album) {
+            if (failure != null) return;
+            try {
+                if (album.getId() <= lastId) throw new IOException("Albums must be written in id order");
+                byte[] name = album.getAlbumName().getBytes(StandardCharsets.UTF_8);
+                int nameOffset = appendToHeap(name);
+                byte[] artist = album.getArtist().getBytes(StandardCharsets.UTF_8);
+                Integer artistOffset = artistOffsets.get(album.getArtist());
+                if (artistOffset == null) {
+                    artistOffset = appendToHeap(artist);
+                    artistOffsets.put(album.getArtist(), artistOffset);
+                }
+
+                records.writeLong(album.getId());
+                records.writeLong(album.getVersion() == null ? 0 : album.getVersion());
+                records.writeInt(album.getReleaseYear());
+                records.writeInt(album.getGenreAsGenre().ordinal());
+                records.writeInt(nameOffset);
+                records.writeInt(name.length);
+                records.writeInt(artistOffset);
+                records.writeInt(artist.length);
+
+                albumCount++;
+                lastId = album.getId();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        private int appendToHeap(byte[] bytes) throws IOException {
+            if (heapSize + bytes.length > Integer.MAX_VALUE) throw new IOException("Catalog too large for a snapshot");
+            int offset = (int) heapSize;
+            heap.write(bytes);
+            heapSize += bytes.length;
+            return offset;
+        }
+
+        private void check() throws IOException {
+            if (failure != null) throw failure;
+            if (HEADER_SIZE + (long) albumCount * RECORD_SIZE + heapSize > Integer.MAX_VALUE) {
+                throw new IOException("Catalog too large for a snapshot");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            records.close();
+            heap.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.exception.PreconditionFailedException;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a version number for the whole catalog, bumped after every committed write, and the database version of
+ * each album this instance has read or written. ETags are built from these alone, so a conditional GET can be
+ * answered without touching the database. Both only see writes made through this instance.
+ * <p>
+ * Album ETags carry the album's version column, so the same tag works as an If-Match precondition on PUT and
+ * DELETE. An album whose version isn't known has no tag until it is next read.
+ */
+@Component
+public class CatalogVersionTracker {
+    // Distinguishes tags handed out before a restart, when the counters start again from zero
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final Map<Long, Long> albumVersions = new ConcurrentHashMap<>();
+
+    // Runs after the write commits, and after the indexes and caches have caught up with it,
+    // so a reader can never pair the new version with the old data. Only the change feed comes later.
+    @Order(Ordered.LOWEST_PRECEDENCE - 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlbumChange(AlbumChangeEvent event) {
+        catalogVersion.incrementAndGet();
+        Album album = event.getAlbum();
+        // Deleted, or written without finding out which version it reached
+        if (album == null || album.getVersion() == null) {
+            albumVersions.remove(event.getAlbumId());
+        } else {
+            rememberAlbumVersion(event.getAlbumId(), album.getVersion());
+        }
+    }
+
+    // Versions only go up, so a read that raced with a write can't put an older version back
+    public void rememberAlbumVersion(long id, long version) {
+        albumVersions.merge(id, version, Math::max);
+    }
+
+    public String getCatalogETag() {
+        return "\"" + epoch + "-" + catalogVersion.get() + "\"";
+    }
+
+    // Null when this instance doesn't know the album's current version
+    public String getAlbumETag(long id) {
+        Long version = albumVersions.get(id);
+        return version == null ? null : albumETag(id, version);
+    }
+
+    public static String albumETag(long id, long version) {
+        return "\"" + id + "-v" + version + "\"";
+    }
+
+    /**
+     * The album version an If-Match header asks for: null for no header, and RecordShopServiceImpl.ANY_VERSION for
+     * "*". Any other value that isn't a tag for this album can never match, so it fails with 412.
+     */
+    public static Long parseIfMatch(String ifMatch, long id) {
+        if (ifMatch == null || ifMatch.isBlank()) return null;
+
+        String prefix = "\"" + id + "-v";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) return RecordShopServiceImpl.ANY_VERSION;
+            // Weak tags never match under If-Match's strong comparison
+            if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                // A tag from a binary representation names its format after the version, as in "12-v3+cbor"
+                String value = tag.substring(prefix.length(), tag.length() - 1);
+                int format = value.indexOf('+');
+                try {
+                    long version = Long.parseLong(format < 0 ? value : value.substring(0, format));
+                    if (version >= 0) return version;
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours; try the next tag
+                }
+            }
+        }
+        throw new PreconditionFailedException("If-Match '" + ifMatch + "' doesn't match any version of album '" + id + "'! Use the ETag from a GET of the album.");
+    }
+}
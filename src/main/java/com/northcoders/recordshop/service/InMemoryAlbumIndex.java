@@ -0,0 +1,83 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Base for in-memory structures built from the whole catalog. Loads every album once the application is ready and
+ * then follows committed writes through {@link AlbumChangeEvent}s. Until it is ready, callers should go to the
+ * database instead.
+ */
+public abstract class InMemoryAlbumIndex {
+    @Autowired
+    RecordShopService recordShopService;
+
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Ids written while the initial load was running; the load must not overwrite them with what it read earlier
+    private Set<Long> changedWhileLoading = new HashSet<>();
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        recordShopService.exportAllAlbums(album -> {
+            lock.writeLock().lock();
+            try {
+                if (!changedWhileLoading.contains(album.getId())) put(album);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading = null;
+            ready = isUsable();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ahead of CatalogVersionTracker, so a new ETag is never handed out for results an index hasn't caught up with
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlbumChange(AlbumChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (changedWhileLoading != null) changedWhileLoading.add(event.getAlbumId());
+
+            switch (event.getType()) {
+                case INSERTED, UPDATED -> put(event.getAlbum());
+                case DELETED -> remove(event.getAlbumId());
+            }
+            if (!isUsable()) ready = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Adds the album or replaces the previous version with the same id. Called with the write lock held.
+    protected abstract void put(Album album);
+
+    // Does nothing if the id isn't indexed. Called with the write lock held.
+    protected abstract void remove(long id);
+
+    // False once the index can no longer represent the catalog, so callers must stop relying on it
+    protected boolean isUsable() {
+        return true;
+    }
+}
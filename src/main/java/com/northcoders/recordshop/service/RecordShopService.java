@@ -1,21 +1,34 @@
 package com.northcoders.recordshop.service;
 
 import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumBatchResult;
+import com.northcoders.recordshop.model.AlbumLookupResult;
+import com.northcoders.recordshop.model.CatalogFacets;
 import com.northcoders.recordshop.model.Genre;
 import org.springframework.http.ResponseEntity;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface RecordShopService {
-    List<Album> getAllAlbums();
+    List<Album> getAllAlbums(long after, int limit);
+    void exportAllAlbums(Consumer<Album> albumConsumer);
     Album getAlbumById(long id);
+    AlbumLookupResult getAlbumsByIds(String ids);
     Album insertNewAlbum(Album album);
+    List<AlbumBatchResult> insertNewAlbums(List<Album> albums);
     ResponseEntity<Album> putAlbum(Album album, Long id);
+    ResponseEntity<Album> putAlbum(Album album, Long id, Long expectedVersion);
     boolean deleteAlbum (long id);
-    List<Album> getAllAlbumsByArtist(String artist);
-    List<Album> getAllAlbumsByReleaseYear(Integer year);
-    List<Album> getAllAlbumsByGenre (Genre genre);
-    List<Album> getAllAlbumsByName (String albumName);
-    List<Album> getAllAlbumsByMultipleParams (Map<String, String> params);
+    boolean deleteAlbum (long id, Long expectedVersion);
+    List<Album> getAllAlbumsByArtist(String artist, long after, int limit);
+    List<Album> getAllAlbumsByReleaseYear(Integer year, long after, int limit);
+    List<Album> getAllAlbumsByGenre (Genre genre, long after, int limit);
+    List<Album> getAllAlbumsByName (String albumName, long after, int limit);
+    List<Album> getAllAlbumsByMultipleParams (Map<String, String> params, long after, int limit);
+    List<Map<String, Object>> getAlbumFields (String fields, Map<String, String> params, long after, int limit);
+    Map<String, Object> getAlbumFieldsById (long id, String fields);
+    CatalogFacets getFacets (Map<String, String> params);
+    List<Album> searchAlbums (String query, int limit);
 }
@@ -1,193 +1,546 @@
 package com.northcoders.recordshop.service;
 
 import com.northcoders.recordshop.exception.BadRequestException;
+import com.northcoders.recordshop.exception.ConcurrentUpdateException;
+import com.northcoders.recordshop.exception.PreconditionFailedException;
 import com.northcoders.recordshop.exception.ResourceNotFoundException;
 import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumBatchResult;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.model.AlbumLookupResult;
+import com.northcoders.recordshop.model.CatalogFacets;
 import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.repository.AlbumSpecifications;
 import com.northcoders.recordshop.repository.RecordShopRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+// Times every public method as recordshop.service, tagged with the method name and the exception it threw (if any)
+@Timed(value = "recordshop.service", histogram = true)
 public class RecordShopServiceImpl implements RecordShopService{
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 10000;
+    public static final int MAX_SEARCH_RESULTS = 100;
+    public static final int MAX_LOOKUP_SIZE = 100;
+    // Attempts an update with If-Match: * gets before giving up with 409
+    public static final int MAX_UPDATE_ATTEMPTS = 3;
+    // The expected version for If-Match: *, which asks for the album to exist at whatever version it's at
+    public static final long ANY_VERSION = -1;
+    public static final String ALBUM_CACHE = "albums";
+    public static final List<String> ALBUM_FIELDS = List.of("id", "albumName", "artist", "releaseYear", "genre");
+    // Must match spring.jpa.properties.hibernate.jdbc.batch_size
+    private static final int JDBC_BATCH_SIZE = 50;
+
+    // Errors with fixed messages are thrown as shared instances. They carry no stack trace, so there is nothing
+    // request-specific in them.
+    private static final ResourceNotFoundException NO_ALBUMS = new ResourceNotFoundException("There are no albums in the database!");
+    private static final ResourceNotFoundException NO_FILTER_MATCHES = new ResourceNotFoundException("No matches found in database for given filters.");
+    private static final BadRequestException NO_ALBUMS_TO_INSERT = new BadRequestException("You must provide a list of albums to insert!");
+    private static final BadRequestException NO_ALBUM = new BadRequestException("You must provide an album when making this request!");
+    private static final BadRequestException NO_SEARCH_PARAMS = new BadRequestException("No parameters provided for search with parameters!");
+    private static final BadRequestException NEGATIVE_CURSOR = new BadRequestException("The 'after' cursor must be an album id of 0 or more!");
+    private static final ResourceNotFoundException FACETS_UNAVAILABLE = new ResourceNotFoundException("Facet counts are only available when the catalog index is enabled and loaded.");
+    private static final ResourceNotFoundException SEARCH_UNAVAILABLE = new ResourceNotFoundException("Search is only available when the search index is enabled and loaded.");
+    private static final BadRequestException NO_SEARCH_QUERY = new BadRequestException("A search query must be provided with the 'q' parameter!");
+    private static final BadRequestException SEARCH_LIMIT_OUT_OF_RANGE = new BadRequestException("The search 'limit' must be between 1 and " + MAX_SEARCH_RESULTS + "!");
+    private static final BadRequestException NO_FIELDS = new BadRequestException("At least one field must be given in 'fields'! Choose from " + String.join(", ", ALBUM_FIELDS) + ".");
+    private static final BadRequestException NO_IDS = new BadRequestException("At least one album id must be given in 'ids'!");
+    private static final BadRequestException TOO_MANY_IDS = new BadRequestException("You can look up at most " + MAX_LOOKUP_SIZE + " album ids in one request!");
+    private static final BadRequestException PAGE_LIMIT_OUT_OF_RANGE = new BadRequestException("The page 'limit' must be between 1 and " + MAX_PAGE_SIZE + "!");
+
     @Autowired
     RecordShopRepository recordShopRepository;
 
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    // The indexes only have beans when enabled with recordshop.catalog-index.enabled and
+    // recordshop.search-index.enabled. Looked up lazily because they load themselves through this service.
+    @Autowired
+    ObjectProvider<CatalogIndex> catalogIndex;
+
+    @Autowired
+    ObjectProvider<AlbumSearchIndex> albumSearchIndex;
+
+    // Only has a bean when enabled with recordshop.snapshot.enabled
+    @Autowired
+    ObjectProvider<CatalogSnapshot> catalogSnapshot;
+
     @Override
-    public List<Album> getAllAlbums() {
-        List<Album> albumList = new ArrayList<>();
-        recordShopRepository.findAll().forEach(albumList::add);
-        if (albumList.isEmpty()) throw new ResourceNotFoundException("There are no albums in the database!");
+    public List<Album> getAllAlbums(long after, int limit) {
+        checkPageBounds(after, limit);
+
+        List<Album> albumList = recordShopRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit));
+        if (albumList.isEmpty() && after == 0) throw NO_ALBUMS;
         return albumList;
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void exportAllAlbums(Consumer<Album> albumConsumer) {
+        try (Stream<Album> albums = recordShopRepository.streamAllByOrderByIdAsc()) {
+            albums.forEach(album -> {
+                albumConsumer.accept(album);
+                entityManager.detach(album); // nothing holds on to rows we've already written out
+            });
+        }
+    }
+
+    // sync makes concurrent misses share one load, and an eviction waits for any load in flight for that id,
+    // so a read racing a write can't leave the old row behind in the cache.
+    @Override
+    @Cacheable(cacheNames = ALBUM_CACHE, key = "#id", sync = true)
     public Album getAlbumById(long id) {
+        CatalogSnapshot snapshot = catalogSnapshot.getIfAvailable();
+        if (snapshot != null) {
+            Album fromSnapshot = snapshot.find(id);
+            if (fromSnapshot != null) return fromSnapshot;
+        }
+
         Optional<Album> album = recordShopRepository.findById(id);
         if (album.isEmpty()) throw new ResourceNotFoundException("There is no album with id '" + id + "' in the database!");
         return album.get();
     }
 
     @Override
+    public AlbumLookupResult getAlbumsByIds(String ids) {
+        List<Long> idList = parseIds(ids);
+
+        // One IN query for the whole batch rather than a findById per id
+        Map<Long, Album> found = new HashMap<>();
+        for (Album album : recordShopRepository.findAllById(idList)) {
+            found.put(album.getId(), album);
+        }
+
+        List<Album> albums = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : idList) {
+            Album album = found.get(id);
+            if (album != null) albums.add(album);
+            else missingIds.add(id);
+        }
+        return new AlbumLookupResult(albums, missingIds);
+    }
+
+    // Repeated ids are only looked up, and returned, once
+    private List<Long> parseIds(String ids) {
+        if (ids == null || ids.isBlank()) throw NO_IDS;
+
+        Set<Long> idSet = new LinkedHashSet<>();
+        for (String id : ids.split(",")) {
+            String trimmed = id.trim();
+            if (trimmed.isEmpty()) continue;
+            try {
+                idSet.add(Long.valueOf(trimmed));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Provided argument '" + trimmed + "' is not a valid album id!");
+            }
+            if (idSet.size() > MAX_LOOKUP_SIZE) throw TOO_MANY_IDS;
+        }
+        if (idSet.isEmpty()) throw NO_IDS;
+        return List.copyOf(idSet);
+    }
+
+    @Override
+    @CachePut(cacheNames = ALBUM_CACHE, key = "#result.id")
     public Album insertNewAlbum(Album album) {
-        if (album == null || album.anyFieldOtherThanIdIsNull()) throw new BadRequestException("You must provide an album with all fields except id filled!");
-        if (album.getId() != null) throw new BadRequestException("You must not provide an id when posting new albums! The id will be set automatically by the database.");
+        String problem = findNewAlbumProblem(album);
+        if (problem != null) throw new BadRequestException(problem);
 
-        return recordShopRepository.save(album);
+        Album createdAlbum = recordShopRepository.save(album);
+        eventPublisher.publishEvent(AlbumChangeEvent.inserted(createdAlbum));
+        return createdAlbum;
     }
 
     @Override
+    @Transactional
+    public List<AlbumBatchResult> insertNewAlbums(List<Album> albums) {
+        if (albums == null || albums.isEmpty()) throw NO_ALBUMS_TO_INSERT;
+        if (albums.size() > MAX_BATCH_SIZE) throw new BadRequestException("You can insert at most " + MAX_BATCH_SIZE + " albums in one request! You sent " + albums.size() + ".");
+
+        List<AlbumBatchResult> results = new ArrayList<>(albums.size());
+        int persisted = 0;
+        for (int i = 0; i < albums.size(); i++) {
+            Album album = albums.get(i);
+            String problem = findNewAlbumProblem(album);
+            if (problem != null) {
+                results.add(AlbumBatchResult.rejected(i, problem));
+                continue;
+            }
+
+            Album createdAlbum = recordShopRepository.save(album);
+            eventPublisher.publishEvent(AlbumChangeEvent.inserted(createdAlbum));
+            results.add(AlbumBatchResult.created(i, createdAlbum));
+
+            // Send each full JDBC batch and forget about it, so the persistence context doesn't grow with the request
+            if (++persisted % JDBC_BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        return results;
+    }
+
+    private String findNewAlbumProblem(Album album) {
+        if (album == null || album.anyFieldOtherThanIdIsNull()) return "You must provide an album with all fields except id filled!";
+        if (album.getId() != null) return "You must not provide an id when posting new albums! The id will be set automatically by the database.";
+        return null;
+    }
+
+    @Override
+    @CacheEvict(cacheNames = ALBUM_CACHE, key = "#id", condition = "#id != null")
     public ResponseEntity<Album> putAlbum(Album album, Long id) {
-        if (album == null) throw new BadRequestException("You must provide an album when making this request!");
+        return putAlbum(album, id, null);
+    }
+
+    // expectedVersion comes from If-Match. When given, the update only goes ahead if the album is still at that
+    // version; ANY_VERSION applies it to the current version, retrying if that moves; null means no check at all.
+    @Override
+    @CacheEvict(cacheNames = ALBUM_CACHE, key = "#id", condition = "#id != null")
+    public ResponseEntity<Album> putAlbum(Album album, Long id, Long expectedVersion) {
+        if (album == null) throw NO_ALBUM;
 
         if (id == null){
             if (album.anyFieldOtherThanIdIsNull()) throw new BadRequestException("You must provide an album with all fields except id filled when making a PUT request without an id specified on the endpoint!");
             if (album.getId() != null) throw new BadRequestException("You must not provide an id in the album when making a PUT request without an id specified on the endpoint! The id will be set automatically by the database.");
 
             Album createdAlbum = recordShopRepository.save(album);
+            eventPublisher.publishEvent(AlbumChangeEvent.inserted(createdAlbum));
             return new ResponseEntity<>(createdAlbum, HttpStatus.CREATED);
         } else{
-            if (!recordShopRepository.existsById(id)) throw new ResourceNotFoundException("There is no album matching id '" + id + "' in the database.");
-            if (album.allFieldsOtherThanIdAreNull()) throw new BadRequestException("You must provide at least one change to make with a PUT request to an id!");
+            // A missing album is a 404 whatever the body says. Existence is only looked up when the body is about to
+            // be refused, so a valid update is still the one statement.
+            String problem = findPutAlbumProblem(album, id);
+            if (problem != null) {
+                if (!recordShopRepository.existsById(id)) throw albumToUpdateNotFound(id);
+                throw new BadRequestException(problem);
+            }
 
-            if (album.getId() != null){
-                if (!album.getId().equals(id)) throw new BadRequestException("When providing an id both in the body of your PUT request and on the endpoint, they must match! Yours were '" + album.getId() + "' in the body, and '" + id + "' on the endpoint.");
+            Album updatedAlbum;
+            if (expectedVersion != null && expectedVersion == ANY_VERSION) {
+                updatedAlbum = mergeAlbumFields(album, id);
+            } else if (expectedVersion != null) {
+                updatedAlbum = updateAlbumAtVersion(album, id, expectedVersion);
+            } else {
+                int updatedRows = recordShopRepository.updateAlbumFields(id, album.getAlbumName(), album.getArtist(), album.getReleaseYear(), album.getGenreAsGenre());
+                if (updatedRows == 0) throw albumToUpdateNotFound(id);
+
+                // With every field supplied the new row is exactly what we were sent, so there's nothing to read back.
+                // The version it ended up at isn't known without one, so the result carries none.
+                if (!album.anyFieldOtherThanIdIsNull()) {
+                    updatedAlbum = new Album(id, album.getAlbumName(), album.getArtist(), album.getReleaseYear(), album.getGenreAsGenre());
+                } else {
+                    // Straight from the table: the cache and the snapshot haven't heard of this update yet
+                    updatedAlbum = recordShopRepository.findById(id).orElseThrow(() -> albumToUpdateNotFound(id));
+                }
             }
 
-            Album albumToModify = getAlbumById(id);
+            eventPublisher.publishEvent(AlbumChangeEvent.updated(updatedAlbum));
+            return ResponseEntity.ok(updatedAlbum);
+        }
+    }
+
+    private String findPutAlbumProblem(Album album, long id) {
+        if (album.allFieldsOtherThanIdAreNull()) return "You must provide at least one change to make with a PUT request to an id!";
+        if (album.getId() != null && !album.getId().equals(id)) return "When providing an id both in the body of your PUT request and on the endpoint, they must match! Yours were '" + album.getId() + "' in the body, and '" + id + "' on the endpoint.";
+        return null;
+    }
+
+    private Album updateAlbumAtVersion(Album album, long id, long expectedVersion) {
+        Album updatedAlbum;
+        if (!album.anyFieldOtherThanIdIsNull()) {
+            updatedAlbum = new Album(id, album.getAlbumName(), album.getArtist(), album.getReleaseYear(), album.getGenreAsGenre());
+            updatedAlbum.setVersion(expectedVersion + 1);
+        } else {
+            Album currentAlbum = recordShopRepository.findById(id).orElseThrow(() -> albumToUpdateNotFound(id));
+            if (currentAlbum.getVersion() != expectedVersion) throw staleVersion(id);
+            updatedAlbum = mergedAlbum(currentAlbum, album);
+        }
 
-            if (album.getAlbumName() != null) albumToModify.setAlbumName(album.getAlbumName());
-            if (album.getArtist() != null) albumToModify.setArtist(album.getArtist());
-            if (album.getGenreAsGenre() != null) albumToModify.setGenre(album.getGenreAsGenre());
-            if (album.getReleaseYear() != null) albumToModify.setReleaseYear(album.getReleaseYear());
+        int updatedRows = recordShopRepository.updateAlbumFieldsIfVersion(id, album.getAlbumName(), album.getArtist(), album.getReleaseYear(), album.getGenreAsGenre(), expectedVersion);
+        if (updatedRows == 0) {
+            if (!recordShopRepository.existsById(id)) throw albumToUpdateNotFound(id);
+            throw staleVersion(id);
+        }
+        return updatedAlbum;
+    }
 
-            Album albumToReturn = recordShopRepository.save(albumToModify);
+    // For If-Match: *. An update only writes the fields it was given, so replaying it on top of someone else's change
+    // loses nothing. Each attempt reads the album and writes against the version it read, which makes the result
+    // exactly the row this update produced, with its version; a newer write in between just means reading again.
+    private Album mergeAlbumFields(Album album, long id) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            Album currentAlbum = recordShopRepository.findById(id).orElseThrow(() -> albumToUpdateNotFound(id));
 
-            return ResponseEntity.ok(albumToReturn);
+            int updatedRows = recordShopRepository.updateAlbumFieldsIfVersion(id, album.getAlbumName(), album.getArtist(), album.getReleaseYear(), album.getGenreAsGenre(), currentAlbum.getVersion());
+            if (updatedRows == 1) return mergedAlbum(currentAlbum, album);
         }
+        throw new ConcurrentUpdateException("Album '" + id + "' was changed by " + MAX_UPDATE_ATTEMPTS + " other updates while this one was being made. Try again.");
+    }
+
+    private static Album mergedAlbum(Album currentAlbum, Album changes) {
+        Album merged = new Album(currentAlbum.getId(),
+                changes.getAlbumName() != null ? changes.getAlbumName() : currentAlbum.getAlbumName(),
+                changes.getArtist() != null ? changes.getArtist() : currentAlbum.getArtist(),
+                changes.getReleaseYear() != null ? changes.getReleaseYear() : currentAlbum.getReleaseYear(),
+                changes.getGenreAsGenre() != null ? changes.getGenreAsGenre() : currentAlbum.getGenreAsGenre());
+        merged.setVersion(currentAlbum.getVersion() + 1);
+        return merged;
+    }
+
+    private static ResourceNotFoundException albumToUpdateNotFound(long id) {
+        return new ResourceNotFoundException("There is no album matching id '" + id + "' in the database.");
+    }
+
+    private static PreconditionFailedException staleVersion(long id) {
+        return new PreconditionFailedException("Album '" + id + "' has changed since the version given in If-Match! Fetch it again for its current ETag.");
     }
 
     @Override
+    @CacheEvict(cacheNames = ALBUM_CACHE, key = "#id")
     public boolean deleteAlbum(long id) {
-        if (recordShopRepository.existsById(id)) {
+        return deleteAlbum(id, null);
+    }
+
+    @Override
+    @CacheEvict(cacheNames = ALBUM_CACHE, key = "#id")
+    public boolean deleteAlbum(long id, Long expectedVersion) {
+        // If-Match: * only asks for the album to exist, which the plain delete checks anyway
+        if (expectedVersion != null && expectedVersion != ANY_VERSION) {
+            if (recordShopRepository.deleteByIdIfVersion(id, expectedVersion) == 0) {
+                if (recordShopRepository.existsById(id)) throw staleVersion(id);
+                throw new ResourceNotFoundException("No album found at id '" + id + "' in database.");
+            }
+        } else if (recordShopRepository.existsById(id)) {
             recordShopRepository.deleteById(id);
-            return true;
         } else {
             throw new ResourceNotFoundException("No album found at id '" + id + "' in database.");
         }
+
+        eventPublisher.publishEvent(AlbumChangeEvent.deleted(id));
+        return true;
     }
 
     @Override
-    public List<Album> getAllAlbumsByArtist(String artist) {
+    public List<Album> getAllAlbumsByArtist(String artist, long after, int limit) {
         if (artist == null || artist.isEmpty()) throw new BadRequestException("An artist must be provided when trying to find all albums by an artist!");
 
-        List<Album> resultList = recordShopRepository.findByArtist(artist);
+        checkPageBounds(after, limit);
 
-        if (resultList.isEmpty()) throw new ResourceNotFoundException("No albums found by artist '" + artist + "' in the database!");
+        List<Album> resultList = recordShopRepository.findByArtistAndIdGreaterThanOrderByIdAsc(artist, after, Limit.of(limit));
+
+        if (resultList.isEmpty() && after == 0) throw new ResourceNotFoundException("No albums found by artist '" + artist + "' in the database!");
 
         return resultList;
     }
 
     @Override
-    public List<Album> getAllAlbumsByReleaseYear(Integer year) {
+    public List<Album> getAllAlbumsByReleaseYear(Integer year, long after, int limit) {
         if (year == null) throw new BadRequestException("A year must be provided when trying to find all albums released in a year!");
 
-        List<Album> resultList = recordShopRepository.findByReleaseYear(year);
+        checkPageBounds(after, limit);
+
+        List<Album> resultList = recordShopRepository.findByReleaseYearAndIdGreaterThanOrderByIdAsc(year, after, Limit.of(limit));
 
-        if (resultList.isEmpty()) throw new ResourceNotFoundException("No albums found in the database released in year '" + year + "'!");
+        if (resultList.isEmpty() && after == 0) throw new ResourceNotFoundException("No albums found in the database released in year '" + year + "'!");
 
         return resultList;
     }
 
     @Override
-    public List<Album> getAllAlbumsByGenre(Genre genre) {
+    public List<Album> getAllAlbumsByGenre(Genre genre, long after, int limit) {
         if (genre == null) throw new BadRequestException("A genre must be provided when trying to find all albums with a given genre!");
 
-        List<Album> resultList = recordShopRepository.findByGenre(genre);
+        checkPageBounds(after, limit);
 
-        if (resultList.isEmpty()) throw new ResourceNotFoundException("No albums found with genre '" + genre + "' in the database!");
+        List<Album> resultList = recordShopRepository.findByGenreAndIdGreaterThanOrderByIdAsc(genre, after, Limit.of(limit));
+
+        if (resultList.isEmpty() && after == 0) throw new ResourceNotFoundException("No albums found with genre '" + genre + "' in the database!");
 
         return resultList;
     }
 
     @Override
-    public List<Album> getAllAlbumsByName(String albumName) {
+    public List<Album> getAllAlbumsByName(String albumName, long after, int limit) {
         if (albumName == null) throw new BadRequestException("An name must be provided when trying to find an album by its name!");
 
-        List<Album> resultList = recordShopRepository.findByAlbumName(albumName);
+        checkPageBounds(after, limit);
+
+        List<Album> resultList = recordShopRepository.findByAlbumNameAndIdGreaterThanOrderByIdAsc(albumName, after, Limit.of(limit));
 
-        if (resultList.isEmpty()) throw new ResourceNotFoundException("No album found with name '" + albumName + "' in the database!");
+        if (resultList.isEmpty() && after == 0) throw new ResourceNotFoundException("No album found with name '" + albumName + "' in the database!");
 
         return resultList;
     }
 
     @Override
-    public List<Album> getAllAlbumsByMultipleParams(Map<String, String> params) {
+    public List<Album> getAllAlbumsByMultipleParams(Map<String, String> params, long after, int limit) {
         checkForBadParams(params);
-        List<Album> workingList;
+        checkPageBounds(after, limit);
+        if (params.isEmpty()) throw NO_SEARCH_PARAMS;
 
-        boolean filterByArtist = false;
-        boolean filterByReleaseYear = false;
-        boolean filterByGenre = false;
-        boolean filterByAlbumName = false;
+        AlbumFilters albumFilters = parseFilters(params);
+        List<Album> resultList;
 
-        for (String param : params.keySet()) {
-            switch (param) {
-                case "artist" -> filterByArtist = true;
-                case "releaseYear" -> filterByReleaseYear = true;
-                case "genre" -> filterByGenre = true;
-                case "albumName" -> filterByAlbumName = true;
-                default -> throw new BadRequestException("Can't process given parameter '" + param + "'!");
-            }
+        CatalogIndex index = catalogIndex.getIfAvailable();
+        if (index != null && index.isReady()) {
+            // Answered from the in-memory bitmaps without a database round trip
+            resultList = index.find(albumFilters.artist(), albumFilters.releaseYear(), albumFilters.genre(), albumFilters.albumName(), after, limit);
+        } else {
+            // All filters go to the database as one keyset query, so only matching rows are read.
+            Specification<Album> filters = toSpecification(albumFilters, after);
+            resultList = recordShopRepository.findBy(filters, query -> query.sortBy(Sort.by("id")).limit(limit).all());
         }
 
-        try {
-            if (filterByAlbumName) {
-                workingList = getAllAlbumsByName(params.get("albumName"));
-            } else if (filterByArtist) {
-                workingList = getAllAlbumsByArtist(params.get("artist"));
-                filterByArtist = false;
-            } else if (filterByReleaseYear) {
-                workingList = getAllAlbumsByReleaseYear(Integer.valueOf(params.get("year")));
-                filterByReleaseYear = false;
-            } else if (filterByGenre) {
-                workingList = getAllAlbumsByGenre(Genre.valueOf(params.get("genre").toUpperCase()));
-                filterByGenre = false;
-            } else {
-                throw new BadRequestException("No parameters provided for search with parameters!");
+        if (resultList.isEmpty() && after == 0) throw NO_FILTER_MATCHES;
+
+        return resultList;
+    }
+
+    @Override
+    public List<Map<String, Object>> getAlbumFields(String fields, Map<String, String> params, long after, int limit) {
+        List<String> fieldList = parseFields(fields);
+        checkForBadParams(params);
+        checkPageBounds(after, limit);
+
+        Specification<Album> filters = toSpecification(parseFilters(params), after);
+        List<Map<String, Object>> resultList = recordShopRepository.findFieldsBy(filters, fieldList, limit);
+
+        if (resultList.isEmpty() && after == 0) throw params.isEmpty() ? NO_ALBUMS : NO_FILTER_MATCHES;
+
+        return resultList;
+    }
+
+    @Override
+    public Map<String, Object> getAlbumFieldsById(long id, String fields) {
+        List<Map<String, Object>> result = recordShopRepository.findFieldsBy(AlbumSpecifications.hasId(id), parseFields(fields), 1);
+        if (result.isEmpty()) throw new ResourceNotFoundException("There is no album with id '" + id + "' in the database!");
+        return result.get(0);
+    }
+
+    @Override
+    public CatalogFacets getFacets(Map<String, String> params) {
+        checkForBadParams(params);
+
+        CatalogIndex index = catalogIndex.getIfAvailable();
+        if (index == null || !index.isReady()) throw FACETS_UNAVAILABLE;
+
+        AlbumFilters albumFilters = parseFilters(params);
+        return index.facets(albumFilters.artist(), albumFilters.releaseYear(), albumFilters.genre(), albumFilters.albumName());
+    }
+
+    @Override
+    public List<Album> searchAlbums(String query, int limit) {
+        if (query == null || query.isBlank()) throw NO_SEARCH_QUERY;
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) throw SEARCH_LIMIT_OUT_OF_RANGE;
+
+        AlbumSearchIndex index = albumSearchIndex.getIfAvailable();
+        if (index == null || !index.isReady()) throw SEARCH_UNAVAILABLE;
+
+        List<Album> resultList = index.search(query, limit);
+
+        if (resultList.isEmpty()) throw new ResourceNotFoundException("No albums found matching '" + query + "'!");
+
+        return resultList;
+    }
+
+    private record AlbumFilters(String artist, Integer releaseYear, Genre genre, String albumName) {
+    }
+
+    private AlbumFilters parseFilters(Map<String, String> params) {
+        String artist = null;
+        Integer releaseYear = null;
+        Genre genre = null;
+        String albumName = null;
+
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            String value = param.getValue();
+            if (value == null || value.isEmpty()) throw new BadRequestException("A value must be provided for parameter '" + param.getKey() + "'!");
+
+            switch (param.getKey()) {
+                case "artist" -> artist = value;
+                case "releaseYear" -> releaseYear = parseReleaseYear(value);
+                case "genre" -> genre = parseGenre(value);
+                case "albumName" -> albumName = value;
+                default -> throw new BadRequestException("Can't process given parameter '" + param.getKey() + "'!");
             }
-        } catch (BadRequestException e) {
-            throw new BadRequestException(e.getMessage());
-        } catch (ResourceNotFoundException e) {
-            throw new ResourceNotFoundException("No matches found in database for given filters.");
         }
+        return new AlbumFilters(artist, releaseYear, genre, albumName);
+    }
 
-        if (filterByArtist) {
-            String artist = params.get("artist");
-            workingList.removeIf(album -> !album.getArtist().equals(artist));
-        }
-        if (filterByReleaseYear) {
-            int releaseYear = Integer.parseInt(params.get("releaseYear"));
-            workingList.removeIf(album -> !album.getReleaseYear().equals(releaseYear));
+    private Specification<Album> toSpecification(AlbumFilters albumFilters, long after) {
+        Specification<Album> filters = AlbumSpecifications.idGreaterThan(after);
+        if (albumFilters.artist() != null) filters = filters.and(AlbumSpecifications.hasArtist(albumFilters.artist()));
+        if (albumFilters.releaseYear() != null) filters = filters.and(AlbumSpecifications.hasReleaseYear(albumFilters.releaseYear()));
+        if (albumFilters.genre() != null) filters = filters.and(AlbumSpecifications.hasGenre(albumFilters.genre()));
+        if (albumFilters.albumName() != null) filters = filters.and(AlbumSpecifications.hasAlbumName(albumFilters.albumName()));
+        return filters;
+    }
+
+    // id always comes first, whether asked for or not: it identifies each album, and paged lists need it for the
+    // Next-Cursor header
+    private List<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) throw NO_FIELDS;
+
+        Set<String> fieldSet = new LinkedHashSet<>();
+        fieldSet.add("id");
+        for (String field : fields.split(",")) {
+            String trimmed = field.trim();
+            if (trimmed.isEmpty()) continue;
+            if (!ALBUM_FIELDS.contains(trimmed)) throw new BadRequestException("Given field '" + trimmed + "' is not an album field! Choose from " + String.join(", ", ALBUM_FIELDS) + ".");
+            fieldSet.add(trimmed);
         }
-        if (filterByGenre) {
-            Genre genre = Genre.valueOf(params.get("genre").toUpperCase());
-            workingList.removeIf(album -> !album.getGenreAsGenre().equals(genre));
+        return List.copyOf(fieldSet);
+    }
+
+    private Integer parseReleaseYear(String releaseYear) {
+        try {
+            return Integer.valueOf(releaseYear);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Provided argument '" + releaseYear + "' is not a valid year!");
         }
+    }
 
-        if (workingList.isEmpty()) throw new ResourceNotFoundException("No matches found in database for given filters.");
+    private Genre parseGenre(String genre) {
+        Genre parsed = Genre.fromName(genre);
+        if (parsed == null) throw new BadRequestException("Provided argument '" + genre + "' is not a valid genre!");
+        return parsed;
+    }
 
-        return workingList;
+    private void checkPageBounds(long after, int limit) {
+        if (after < 0) throw NEGATIVE_CURSOR;
+        if (limit < 1 || limit > MAX_PAGE_SIZE) throw PAGE_LIMIT_OUT_OF_RANGE;
     }
 
-    private void checkForBadParams(Map<String, String> params) {
+    void checkForBadParams(Map<String, String> params) {
         StringBuilder badParamsBuilder = new StringBuilder();
         int badParamsCount = 0;
         for (String param : params.keySet()) {
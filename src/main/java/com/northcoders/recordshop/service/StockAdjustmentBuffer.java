@@ -0,0 +1,282 @@
+package com.northcoders.recordshop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind for stock adjustments from the tills. Deltas are summed per album in memory and written to the stock
+ * table as one batch of UPDATEs once recordshop.stock.adjustments.flush-size adjustments are waiting, or every
+ * recordshop.stock.adjustments.flush-interval-ms, whichever comes first.
+ * <p>
+ * With recordshop.stock.journal.enabled, each adjustment is also appended to a {@link StockAdjustmentJournal} before
+ * it is accepted. Every flush closes the journal segment it covers and records that segment in
+ * stock_journal_checkpoint in the same transaction as the deltas. On startup, segments past the checkpoint are
+ * replayed, so adjustments survive a crash and none are applied twice.
+ */
+@Component
+public class StockAdjustmentBuffer {
+    private static final Logger log = LoggerFactory.getLogger(StockAdjustmentBuffer.class);
+    // Clamped at zero so one over-eager till can't fail the whole batch on the table's check constraint.
+    // What the clamp cuts off is counted by recordshop.stock.adjustments.clamped.
+    private static final String UPDATE_STOCK = "update stock set number_in_stock = greatest(number_in_stock + ?, 0) where album_id = ?";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${recordshop.stock.adjustments.flush-size:1000}")
+    int flushSize = 1000;
+
+    @Value("${recordshop.stock.adjustments.flush-interval-ms:1000}")
+    long flushIntervalMillis = 1000;
+
+    @Value("${recordshop.stock.journal.enabled:false}")
+    boolean journalEnabled;
+
+    @Value("${recordshop.stock.journal.directory:stock-journal}")
+    String journalDirectory = "stock-journal";
+
+    // Replaced with an empty map by each flush while holding the write lock, so a flush takes exactly the
+    // adjustments (and journal entries) made before it
+    private volatile Map<Long, AtomicLong> pending = new ConcurrentHashMap<>();
+    // The batch a flush is writing, still counted by pendingDelta until its transaction has committed
+    private volatile Map<Long, AtomicLong> flushing = Map.of();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    private StockAdjustmentJournal journal;
+    private ScheduledExecutorService flusher;
+    private Timer flushTimer;
+    private Counter clampedCopies;
+
+    @PostConstruct
+    public void start() throws IOException {
+        Gauge.builder("recordshop.stock.adjustments.pending", pendingCount, AtomicLong::get)
+                .description("Stock adjustments accepted but not yet written to the stock table")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("recordshop.stock.adjustments.flush")
+                .description("Time to write one batch of stock adjustments")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        clampedCopies = Counter.builder("recordshop.stock.adjustments.clamped")
+                .description("Copies that adjustments tried to take out of stock that wasn't there, and were ignored")
+                .baseUnit("copies")
+                .register(meterRegistry);
+
+        if (journalEnabled) {
+            journal = new StockAdjustmentJournal(Path.of(journalDirectory).toAbsolutePath());
+            replayJournal();
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-adjustment-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(long albumId, long delta) {
+        long waiting;
+        swapLock.readLock().lock();
+        try {
+            if (journal != null) journal.append(albumId, delta);
+            pending.computeIfAbsent(albumId, id -> new AtomicLong()).addAndGet(delta);
+            waiting = pendingCount.incrementAndGet();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+
+        if (waiting >= flushSize && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    // Sum of the adjustments to an album that haven't reached the table yet. Just after a flush commits, its batch
+    // can be counted here as well as in the table for a moment.
+    public long pendingDelta(long albumId) {
+        AtomicLong delta = pending.get(albumId);
+        AtomicLong writing = flushing.get(albumId);
+        return (delta == null ? 0 : delta.get()) + (writing == null ? 0 : writing.get());
+    }
+
+    public long pendingCount() {
+        return pendingCount.get();
+    }
+
+    private void flushQuietly() {
+        flushQueued.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to write stock adjustments, they will be retried with the next flush", e);
+        }
+    }
+
+    public void flush() {
+        flush(false);
+    }
+
+    // force writes a checkpoint even when there is nothing to apply, to retire replayed segments
+    private synchronized void flush(boolean force) {
+        if (pendingCount.get() == 0 && !force) return;
+
+        Map<Long, AtomicLong> batch;
+        long batchCount;
+        long closedSegment;
+        swapLock.writeLock().lock();
+        try {
+            batch = pending;
+            flushing = batch;
+            pending = new ConcurrentHashMap<>();
+            batchCount = pendingCount.getAndSet(0);
+            closedSegment = journal == null ? -1 : journal.currentSegment();
+            if (journal != null) journal.openSegment(closedSegment + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        try {
+            flushTimer.record(() -> write(batch, closedSegment));
+        } catch (RuntimeException e) {
+            // Back in the queue for the next flush. The closed segment stays on disk, and is retired by the
+            // checkpoint of whichever flush does apply these deltas.
+            swapLock.readLock().lock();
+            try {
+                batch.forEach((albumId, delta) -> pending.computeIfAbsent(albumId, id -> new AtomicLong()).addAndGet(delta.get()));
+            } finally {
+                swapLock.readLock().unlock();
+            }
+            pendingCount.addAndGet(batchCount);
+            throw e;
+        } finally {
+            flushing = Map.of();
+        }
+
+        if (journal != null) {
+            try {
+                journal.deleteThrough(closedSegment);
+            } catch (IOException e) {
+                // Harmless: the checkpoint already stops these segments from being replayed
+                log.warn("Could not delete applied stock journal segments", e);
+            }
+        }
+    }
+
+    private void write(Map<Long, AtomicLong> batch, long closedSegment) {
+        List<Object[]> updates = new ArrayList<>(batch.size());
+        batch.forEach((albumId, delta) -> {
+            if (delta.get() != 0) updates.add(new Object[]{delta.get(), albumId});
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            countShortfalls(updates);
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_STOCK, updates);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) log.warn("Dropped stock adjustment of {} for album {}, which has no stock record", updates.get(i)[0], updates.get(i)[1]);
+            }
+            if (journal != null) writeCheckpoint(closedSegment);
+        });
+    }
+
+    // Locks the rows that are about to be taken down, so the stock read here is the stock the update sees, and
+    // reports any album that doesn't have enough copies for its delta
+    private void countShortfalls(List<Object[]> updates) {
+        Map<Long, Long> removals = new HashMap<>();
+        for (Object[] update : updates) {
+            long delta = (Long) update[0];
+            if (delta < 0) removals.put((Long) update[1], delta);
+        }
+        if (removals.isEmpty()) return;
+
+        String placeholders = String.join(",", Collections.nCopies(removals.size(), "?"));
+        RowCallbackHandler shortfalls = row -> {
+            long albumId = row.getLong("album_id");
+            long delta = removals.get(albumId);
+            long shortfall = -(row.getLong("number_in_stock") + delta);
+            if (shortfall > 0) {
+                clampedCopies.increment(shortfall);
+                log.warn("Stock adjustment of {} for album {} is {} copies more than are in stock; the count stops at zero", delta, albumId, shortfall);
+            }
+        };
+        jdbcTemplate.query("select album_id, number_in_stock from stock where album_id in (" + placeholders + ") for update",
+                shortfalls, removals.keySet().toArray());
+    }
+
+    private void replayJournal() throws IOException {
+        long checkpoint = readCheckpoint();
+        long lastSegment = checkpoint;
+        for (long segment : journal.segments()) {
+            lastSegment = Math.max(lastSegment, segment);
+            if (segment <= checkpoint) continue;
+            journal.read(segment).forEach((albumId, delta) -> {
+                pending.computeIfAbsent(albumId, id -> new AtomicLong()).addAndGet(delta);
+                pendingCount.incrementAndGet();
+            });
+        }
+        journal.openSegment(lastSegment + 1);
+        log.info("Replaying stock adjustments for {} albums from the journal in {}", pending.size(), journal.getDirectory());
+        flush(true);
+    }
+
+    private long readCheckpoint() {
+        List<Long> segments = jdbcTemplate.queryForList("select segment from stock_journal_checkpoint where journal = ?",
+                Long.class, journal.getDirectory().toString());
+        return segments.isEmpty() ? -1 : segments.get(0);
+    }
+
+    private void writeCheckpoint(long segment) {
+        String key = journal.getDirectory().toString();
+        if (jdbcTemplate.update("update stock_journal_checkpoint set segment = ? where journal = ?", segment, key) == 0) {
+            jdbcTemplate.update("insert into stock_journal_checkpoint (journal, segment) values (?, ?)", key, segment);
+        }
+    }
+
+    // Writes whatever is still waiting before the database goes away
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+        if (journal != null) journal.close();
+    }
+}
@@ -0,0 +1,161 @@
+package com.northcoders.recordshop.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of stock adjustments, split into numbered segment files ("segment-42.log", one "albumId,delta"
+ * line per adjustment). Every append is on disk before it returns, but appends don't each pay for a force: whoever
+ * finds no force running writes one for every line appended so far, and appends made meanwhile wait for the next.
+ * A segment can be deleted once its deltas are in the database.
+ */
+public class StockAdjustmentJournal implements AutoCloseable {
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    // Locks rather than monitors, so a virtual thread waiting on a force doesn't pin its carrier. Where both are
+    // taken, syncLock comes first.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private FileChannel current;
+    private long currentSegment;
+    // Lines written so far, and how many of those are known to be on disk
+    private long appended;
+    private volatile long synced;
+
+    public StockAdjustmentJournal(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Segments on disk, oldest first
+    public List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Sum of the deltas in a segment per album. A torn last line, left by a crash mid-append, is skipped.
+    public Map<Long, Long> read(long segment) throws IOException {
+        Map<Long, Long> deltas = new TreeMap<>();
+        for (String line : Files.readAllLines(segmentFile(segment), StandardCharsets.UTF_8)) {
+            int comma = line.indexOf(',');
+            if (comma < 0) continue;
+            try {
+                deltas.merge(Long.parseLong(line.substring(0, comma)), Long.parseLong(line.substring(comma + 1)), Long::sum);
+            } catch (NumberFormatException e) {
+                // torn write
+            }
+        }
+        return deltas;
+    }
+
+    // Closes the current segment and sends further appends to the given one
+    public void openSegment(long segment) throws IOException {
+        syncLock.lock();
+        writeLock.lock();
+        try {
+            closeCurrent();
+            current = FileChannel.open(segmentFile(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            currentSegment = segment;
+        } finally {
+            writeLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    public long currentSegment() {
+        writeLock.lock();
+        try {
+            return currentSegment;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void append(long albumId, long delta) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((albumId + "," + delta + "\n").getBytes(StandardCharsets.US_ASCII));
+        long sequence;
+        writeLock.lock();
+        try {
+            while (line.hasRemaining()) current.write(line);
+            sequence = ++appended;
+        } finally {
+            writeLock.unlock();
+        }
+        sync(sequence);
+    }
+
+    // Returns once the given line is on disk, forcing the segment unless a force that started after it has done so
+    private void sync(long sequence) throws IOException {
+        if (synced >= sequence) return;
+        syncLock.lock();
+        try {
+            if (synced >= sequence) return;
+            FileChannel channel;
+            long covered;
+            writeLock.lock();
+            try {
+                channel = current;
+                covered = appended;
+            } finally {
+                writeLock.unlock();
+            }
+            channel.force(false);
+            synced = covered;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Drops every segment up to and including the given one
+    public void deleteThrough(long segment) throws IOException {
+        for (long existing : segments()) {
+            if (existing <= segment) Files.deleteIfExists(segmentFile(existing));
+        }
+    }
+
+    private Path segmentFile(long segment) {
+        return directory.resolve(PREFIX + segment + SUFFIX);
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        writeLock.lock();
+        try {
+            closeCurrent();
+            current = null;
+        } finally {
+            writeLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    // Forces what is still waiting, so no append is left with its line unsynced in a closed segment
+    private void closeCurrent() throws IOException {
+        if (current == null) return;
+        current.force(false);
+        synced = appended;
+        current.close();
+    }
+}
@@ -0,0 +1,11 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.model.StockLevel;
+
+public interface StockService {
+    StockLevel getStock(long albumId);
+    void reserve(long albumId, int quantity);
+    void release(long albumId, int quantity);
+    StockLevel restock(long albumId, int quantity, Integer pricePence);
+    void adjust(long albumId, int delta);
+}
@@ -0,0 +1,200 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.exception.BadRequestException;
+import com.northcoders.recordshop.exception.OutOfStockException;
+import com.northcoders.recordshop.exception.ResourceNotFoundException;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.model.Stock;
+import com.northcoders.recordshop.model.StockLevel;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import com.northcoders.recordshop.repository.StockRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reserves copies without making every buyer queue on the album's stock row. Each album gets an in-memory pool
+ * that leases a block of copies from the table in one short locked transaction, then hands them out with a
+ * compare-and-set per reservation. Only the thread that empties the pool goes back to the database.
+ * <p>
+ * Leased copies are counted out of the table, so several instances can share it without overselling. Copies left in
+ * a pool go back to the table on shutdown; if the process dies first they are lost to sale, never sold twice.
+ */
+@Service
+@Timed(value = "recordshop.stock", histogram = true)
+public class StockServiceImpl implements StockService {
+    private static final BadRequestException QUANTITY_NOT_POSITIVE = new BadRequestException("The 'quantity' must be 1 or more!");
+    private static final BadRequestException QUANTITY_NEGATIVE = new BadRequestException("The 'quantity' must be 0 or more!");
+    private static final BadRequestException PRICE_NEGATIVE = new BadRequestException("The 'pricePence' must be 0 or more!");
+    private static final BadRequestException DELTA_ZERO = new BadRequestException("The 'delta' must not be 0!");
+
+    @Autowired
+    StockRepository stockRepository;
+
+    @Autowired
+    RecordShopRepository recordShopRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    StockAdjustmentBuffer stockAdjustmentBuffer;
+
+    // Copies taken from the table per trip. Larger leases mean fewer locked transactions on a hot album, but more
+    // copies stranded in a pool if the instance dies.
+    @Value("${recordshop.stock.lease-size:20}")
+    int leaseSize = 20;
+
+    private final Map<Long, StockPool> pools = new ConcurrentHashMap<>();
+
+    static final class StockPool {
+        // Copies leased from the table and not yet reserved
+        final AtomicInteger leased = new AtomicInteger();
+        // Copies reserved through this instance since startup and not released, so a release can't add stock
+        final AtomicLong reserved = new AtomicLong();
+        // Only held while fetching a new lease; reservations never wait on it while the pool has copies
+        final ReentrantLock refillLock = new ReentrantLock();
+
+        boolean tryTake(int quantity) {
+            int current;
+            do {
+                current = leased.get();
+                if (current < quantity) return false;
+            } while (!leased.compareAndSet(current, current - quantity));
+            return true;
+        }
+
+        // Takes as many as the pool has, up to max, and says how many that was
+        int takeUpTo(int max) {
+            int current;
+            int taken;
+            do {
+                current = leased.get();
+                taken = Math.min(current, max);
+            } while (taken > 0 && !leased.compareAndSet(current, current - taken));
+            return Math.max(taken, 0);
+        }
+    }
+
+    @Override
+    public StockLevel getStock(long albumId) {
+        Stock stock = findStock(albumId);
+        StockPool pool = pools.get(albumId);
+        long available = stock.getNumberInStock() + (pool == null ? 0 : pool.leased.get())
+                + stockAdjustmentBuffer.pendingDelta(albumId);
+        available = Math.max(available, 0);
+        return new StockLevel(albumId, available, stock.getPricePence());
+    }
+
+    @Override
+    public void reserve(long albumId, int quantity) {
+        if (quantity < 1) throw QUANTITY_NOT_POSITIVE;
+
+        StockPool pool = pools.computeIfAbsent(albumId, id -> new StockPool());
+        while (!pool.tryTake(quantity)) {
+            if (!refill(albumId, pool, quantity)) {
+                throw new OutOfStockException("There are fewer than " + quantity + " copies of album '" + albumId + "' left in stock!");
+            }
+        }
+        pool.reserved.addAndGet(quantity);
+    }
+
+    // Tops the pool up from the table. False when the table can't supply enough for this reservation.
+    private boolean refill(long albumId, StockPool pool, int quantity) {
+        pool.refillLock.lock();
+        try {
+            // Another buyer may have refilled the pool while this one waited for the lock
+            int leased = pool.leased.get();
+            if (leased >= quantity) return true;
+
+            int wanted = Math.max(leaseSize, quantity - leased);
+            Integer taken = transactionTemplate.execute(status -> {
+                Stock stock = stockRepository.findByIdForUpdate(albumId)
+                        .orElseThrow(() -> noStockRecord(albumId));
+                // Till sales waiting in the buffer will come out of the table, so those copies can't be leased
+                long unsold = stock.getNumberInStock() + Math.min(stockAdjustmentBuffer.pendingDelta(albumId), 0);
+                int take = (int) Math.max(Math.min(wanted, unsold), 0);
+                stock.setNumberInStock(stock.getNumberInStock() - take);
+                return take;
+            });
+            return pool.leased.addAndGet(taken) >= quantity;
+        } finally {
+            pool.refillLock.unlock();
+        }
+    }
+
+    @Override
+    public void release(long albumId, int quantity) {
+        if (quantity < 1) throw QUANTITY_NOT_POSITIVE;
+
+        StockPool pool = pools.get(albumId);
+        long current;
+        do {
+            current = pool == null ? 0 : pool.reserved.get();
+            if (current < quantity) throw new BadRequestException("Only " + current + " copies of album '" + albumId + "' are reserved, so " + quantity + " can't be released!");
+        } while (!pool.reserved.compareAndSet(current, current - quantity));
+
+        // Straight back into the pool, ready for the next buyer
+        pool.leased.addAndGet(quantity);
+    }
+
+    @Override
+    public StockLevel restock(long albumId, int quantity, Integer pricePence) {
+        if (quantity < 0) throw QUANTITY_NEGATIVE;
+        if (pricePence != null && pricePence < 0) throw PRICE_NEGATIVE;
+
+        if (stockRepository.addStock(albumId, quantity, pricePence) == 0) {
+            if (!recordShopRepository.existsById(albumId)) throw new ResourceNotFoundException("There is no album with id '" + albumId + "' in the database!");
+            stockRepository.save(new Stock(albumId, quantity, pricePence == null ? 0 : pricePence));
+        }
+        return getStock(albumId);
+    }
+
+    // Till adjustments are summed in memory and written in batches; see StockAdjustmentBuffer
+    @Override
+    public void adjust(long albumId, int delta) {
+        if (delta == 0) throw DELTA_ZERO;
+
+        // Copies leased into the pool are already out of the table, so a sale takes those first and only the rest
+        // is left for the buffer to check against the table
+        if (delta < 0) {
+            StockPool pool = pools.get(albumId);
+            if (pool != null) delta += pool.takeUpTo(-delta);
+            if (delta == 0) return;
+        }
+        stockAdjustmentBuffer.add(albumId, delta);
+    }
+
+    // The stock row goes with the album (on delete cascade), so its pool must too
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlbumChange(AlbumChangeEvent event) {
+        if (event.getType() == AlbumChangeEvent.ChangeType.DELETED) pools.remove(event.getAlbumId());
+    }
+
+    // Hands every unreserved leased copy back to the table
+    @PreDestroy
+    public void returnLeases() {
+        pools.forEach((albumId, pool) -> {
+            int unreserved = pool.leased.getAndSet(0);
+            if (unreserved > 0) stockRepository.addStock(albumId, unreserved, null);
+        });
+    }
+
+    private ResourceNotFoundException noStockRecord(long albumId) {
+        return new ResourceNotFoundException("There is no stock record for album '" + albumId + "'!");
+    }
+
+    private Stock findStock(long albumId) {
+        return stockRepository.findById(albumId).orElseThrow(() -> noStockRecord(albumId));
+    }
+}
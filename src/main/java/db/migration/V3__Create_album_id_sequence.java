@@ -0,0 +1,37 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Creates the pooled sequence album ids are now drawn from, and makes it the column default in place of V1's identity,
+ * so rows inserted by plain SQL take their ids from the same place as Hibernate's. Written in Java rather than SQL
+ * because the start value depends on the rows already in the table, and neither Postgres nor H2 accept a query there.
+ */
+public class V3__Create_album_id_sequence extends BaseJavaMigration {
+    // Must match the allocationSize on Album.id
+    private static final int INCREMENT = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            long nextFreeId;
+            try (ResultSet resultSet = statement.executeQuery("select coalesce(max(id), 0) + 1 from album")) {
+                resultSet.next();
+                nextFreeId = resultSet.getLong(1);
+            }
+
+            // Hibernate's pooled optimizer treats each value it reads as the top of a block of INCREMENT ids,
+            // so the first value has to sit INCREMENT - 1 above the first id we want handed out.
+            statement.execute("create sequence album_seq start with " + (nextFreeId + INCREMENT - 1) + " increment by " + INCREMENT);
+
+            // An insert without an id takes a whole value from the sequence, which is the top of a block Hibernate
+            // then never hands out, so the two can't collide
+            statement.execute("alter table album alter column id drop identity");
+            statement.execute("alter table album alter column id set default nextval('album_seq')");
+        }
+    }
+}
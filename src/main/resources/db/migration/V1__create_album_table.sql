@@ -0,0 +1,8 @@
+-- Matches the table Hibernate used to create with ddl-auto=update. Existing databases are baselined at this version.
+create table if not exists album (
+    id bigint generated by default as identity primary key,
+    album_name varchar(255) not null,
+    artist varchar(255) not null,
+    release_year integer not null,
+    genre_id smallint not null
+);
@@ -0,0 +1,10 @@
+-- Every finder filters on equality and pages with "id > ? order by id", so each index ends in id
+-- and serves both the filter and the keyset ordering without a sort.
+create index idx_album_artist_id on album (artist, id);
+create index idx_album_release_year_id on album (release_year, id);
+create index idx_album_genre_id_id on album (genre_id, id);
+create index idx_album_album_name_id on album (album_name, id);
+
+-- The multi-filter combinations shoppers use most: browsing a genre by year, and an artist's albums by year.
+create index idx_album_genre_id_release_year_id on album (genre_id, release_year, id);
+create index idx_album_artist_release_year_id on album (artist, release_year, id);
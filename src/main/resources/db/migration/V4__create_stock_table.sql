@@ -0,0 +1,7 @@
+-- One row per album on sale, as sketched in plan.png. Reservations take copies out of number_in_stock in leases
+-- (see StockServiceImpl), so the check constraint is the last line of defence against overselling.
+create table stock (
+    album_id bigint primary key references album (id) on delete cascade,
+    number_in_stock integer not null check (number_in_stock >= 0),
+    price_pence integer default 0 not null check (price_pence >= 0)
+);
@@ -0,0 +1,6 @@
+-- The last stock adjustment journal segment whose deltas have been applied to the stock table, per journal directory.
+-- Written in the same transaction as the deltas, so a segment is never replayed twice after a crash.
+create table stock_journal_checkpoint (
+    journal varchar(1024) primary key,
+    segment bigint not null
+);
@@ -0,0 +1,3 @@
+-- Optimistic locking: every update bumps the version, and a write made against an older version updates no rows
+-- (see RecordShopRepository.updateAlbumFieldsIfVersion). Existing rows start at version 0.
+alter table album add column version bigint default 0 not null;
@@ -0,0 +1,152 @@
+package com.northcoders.recordshop.config;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ContentNegotiationTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    RecordShopRepository recordShopRepository;
+
+    private Album album;
+
+    @BeforeEach
+    public void insertAlbum() {
+        album = recordShopRepository.save(new Album("Voulez-Vous", "ABBA", 1979, Genre.POP));
+    }
+
+    // The in-memory database is shared with every other test class
+    @AfterEach
+    public void removeAlbum() {
+        recordShopRepository.deleteById(album.getId());
+    }
+
+    @Test
+    @DisplayName("JSON is still returned when the client doesn't ask for a format")
+    public void testJsonIsDefault() throws Exception {
+        mockMvc.perform(get("/api/v1/record-shop/records/{id}", album.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    @DisplayName("Each format of an album has its own ETag, and a conditional GET only matches the format it was for")
+    public void testETagPerRepresentation() throws Exception {
+        String jsonETag = mockMvc.perform(get("/api/v1/record-shop/records/{id}", album.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String cborETag = mockMvc.perform(get("/api/v1/record-shop/records/{id}", album.getId())
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(jsonETag).isEqualTo("\"" + album.getId() + "-v0\"");
+        assertThat(cborETag).isEqualTo("\"" + album.getId() + "-v0+cbor\"");
+
+        mockMvc.perform(get("/api/v1/record-shop/records/{id}", album.getId())
+                        .accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, jsonETag))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR));
+        mockMvc.perform(get("/api/v1/record-shop/records/{id}", album.getId())
+                        .accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, cborETag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+    }
+
+    @Test
+    @DisplayName("The listing varies on Accept and tags its binary formats apart from JSON")
+    public void testListingETagPerRepresentation() throws Exception {
+        String jsonETag = mockMvc.perform(get("/api/v1/record-shop/records"))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/v1/record-shop/records")
+                        .accept(AlbumProtobufHttpMessageConverter.PROTOBUF).header(HttpHeaders.IF_NONE_MATCH, jsonETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, jsonETag.substring(0, jsonETag.length() - 1) + "+x-protobuf\""));
+    }
+
+    @Test
+    @DisplayName("Accept: application/cbor and application/x-jackson-smile give the same album in binary form")
+    public void testJacksonBinaryFormats() throws Exception {
+        byte[] cbor = mockMvc.perform(get("/api/v1/record-shop/records/{id}", album.getId())
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] smile = mockMvc.perform(get("/api/v1/record-shop/records/{id}", album.getId())
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Genres are written by description ("Pop"), so reading them back needs the same case-insensitivity as JSON
+        ObjectMapper cborMapper = CBORMapper.builder().enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS).build();
+        ObjectMapper smileMapper = SmileMapper.builder().enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS).build();
+        assertThat(cborMapper.readValue(cbor, Album.class)).isEqualTo(album);
+        assertThat(smileMapper.readValue(smile, Album.class)).isEqualTo(album);
+    }
+
+    @Test
+    @DisplayName("Accept: application/x-protobuf gives the album encoded as in album.proto")
+    public void testProtobufAlbum() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/v1/record-shop/records/{id}", album.getId())
+                        .accept(AlbumProtobufHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(AlbumProtobufHttpMessageConverter.PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        AlbumProtobufWriter.writeAlbum(album, expected);
+        assertThat(body).isEqualTo(expected.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Protobuf encoding of an album and an album list matches the wire format")
+    public void testProtobufWireFormat() throws Exception {
+        Album small = new Album(1L, "A", "B", 1979, Genre.POP);
+
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        AlbumProtobufWriter.writeAlbum(small, single);
+        ByteArrayOutputStream list = new ByteArrayOutputStream();
+        AlbumProtobufWriter.writeAlbumList(List.of(small), list);
+
+        assertThat(HexFormat.of().formatHex(single.toByteArray())).isEqualTo("08011201411a014220bb0f2801");
+        assertThat(HexFormat.of().formatHex(list.toByteArray())).isEqualTo("0a0d08011201411a014220bb0f2801");
+    }
+}
@@ -0,0 +1,73 @@
+package com.northcoders.recordshop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("h2")
+class MetricsTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("HTTP requests are timed per filter shape and status")
+    public void testHttpRequestsTaggedWithFilterShape() throws Exception {
+        mockMvc.perform(get("/api/v1/record-shop/records").param("genre", "Rock").param("releaseYear", "1979"))
+                .andExpect(status().isNotFound());
+
+        Timer timer = meterRegistry.find("http.server.requests")
+                .tag(FilterShapeObservationConvention.FILTER_TAG, "releaseYear+genre")
+                .tag("status", "404")
+                .timer();
+
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Service methods are timed with the exception they threw")
+    public void testServiceMethodsTimed() throws Exception {
+        mockMvc.perform(get("/api/v1/record-shop/records/{id}", 404L))
+                .andExpect(status().isNotFound());
+
+        Timer timer = meterRegistry.find("recordshop.service")
+                .tag("method", "getAlbumById")
+                .tag("exception", "ResourceNotFoundException")
+                .timer();
+
+        assertThat(timer).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Repository calls are timed per method")
+    public void testRepositoryMethodsTimed() throws Exception {
+        // An artist no test inserts, so the lookup finds nothing whatever else is in the shared database
+        mockMvc.perform(get("/api/v1/record-shop/records").param("artist", "Metrics Test Nobody"))
+                .andExpect(status().isNotFound());
+
+        Timer timer = meterRegistry.find("spring.data.repository.invocations")
+                .tag("repository", "RecordShopRepository")
+                .tag("method", "findByArtistAndIdGreaterThanOrderByIdAsc")
+                .timer();
+
+        assertThat(timer).isNotNull();
+    }
+}
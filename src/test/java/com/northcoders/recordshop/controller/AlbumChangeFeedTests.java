@@ -0,0 +1,145 @@
+package com.northcoders.recordshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.northcoders.recordshop.exception.ResourceNotFoundException;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.service.CatalogVersionTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class AlbumChangeFeedTests {
+    private static final Pattern EVENT_ID = Pattern.compile("^id:(.+)$", Pattern.MULTILINE);
+    private static final Pattern EVENT_NAME = Pattern.compile("^event:(.+)$", Pattern.MULTILINE);
+
+    MockMvc mockMvc;
+
+    AlbumChangeFeed albumChangeFeed;
+
+    @BeforeEach
+    public void setup() {
+        albumChangeFeed = new AlbumChangeFeed(4);
+
+        RecordShopController controller = new RecordShopController();
+        controller.objectMapper = new ObjectMapper();
+        controller.catalogVersionTracker = new CatalogVersionTracker();
+        controller.albumChangeFeed = albumChangeFeed;
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    public void closeFeed() {
+        albumChangeFeed.close();
+    }
+
+    @Test
+    @DisplayName("A subscriber is sent each change committed after it connected, in order, with its album")
+    public void testLiveChangesStreamed() throws Exception {
+        MockHttpServletResponse response = subscribe(null);
+
+        albumChangeFeed.onAlbumChange(AlbumChangeEvent.inserted(new Album(1L, "Voulez-Vous", "ABBA", 1979, Genre.POP)));
+        albumChangeFeed.onAlbumChange(AlbumChangeEvent.deleted(1L));
+
+        String stream = awaitEvents(response, 2);
+        assertThat(eventNames(stream)).containsExactly("inserted", "deleted");
+        assertThat(stream).contains("\"albumName\":\"Voulez-Vous\"").contains("\"sequence\":2");
+        assertThat(response.getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    @Test
+    @DisplayName("A subscriber reconnecting with Last-Event-ID is sent only the changes after it")
+    public void testResumeFromLastEventId() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            albumChangeFeed.onAlbumChange(AlbumChangeEvent.deleted(id));
+        }
+
+        MockHttpServletResponse response = subscribe(albumChangeFeed.eventId(1));
+
+        String stream = awaitEvents(response, 2);
+        assertThat(eventIds(stream)).containsExactly(albumChangeFeed.eventId(2), albumChangeFeed.eventId(3));
+        assertThat(stream).contains("\"albumId\":2").contains("\"albumId\":3").doesNotContain("\"albumId\":1");
+    }
+
+    @Test
+    @DisplayName("A Last-Event-ID the ring no longer reaches back to, or from before a restart, gets a reset and then only new changes")
+    public void testResetWhenTooFarBehind() throws Exception {
+        for (long id = 1; id <= 6; id++) {
+            albumChangeFeed.onAlbumChange(AlbumChangeEvent.deleted(id));
+        }
+
+        MockHttpServletResponse tooFarBehind = subscribe(albumChangeFeed.eventId(1));
+        MockHttpServletResponse otherEpoch = subscribe("0-3");
+        awaitEvents(tooFarBehind, 1);
+        awaitEvents(otherEpoch, 1);
+        albumChangeFeed.onAlbumChange(AlbumChangeEvent.deleted(7L));
+
+        for (MockHttpServletResponse response : List.of(tooFarBehind, otherEpoch)) {
+            String stream = awaitEvents(response, 2);
+            assertThat(eventNames(stream)).containsExactly(AlbumChangeFeed.RESET_EVENT, "deleted");
+            assertThat(eventIds(stream)).containsExactly(albumChangeFeed.eventId(6), albumChangeFeed.eventId(7));
+        }
+        assertThat(albumChangeFeed.getResetCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("GET request to /records/changes throws ResourceNotFoundException when the feed isn't enabled")
+    public void testFeedDisabled() {
+        RecordShopController controller = new RecordShopController();
+
+        assertThrows(ResourceNotFoundException.class, () -> controller.streamChanges(null, null));
+    }
+
+    private MockHttpServletResponse subscribe(String lastEventId) throws Exception {
+        var requestBuilder = get("/api/v1/record-shop/records/changes").accept(MediaType.TEXT_EVENT_STREAM);
+        if (lastEventId != null) requestBuilder.header(RecordShopController.LAST_EVENT_ID_HEADER, lastEventId);
+        return mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+    }
+
+    // Events are sent from the subscriber's own thread, so wait for them to arrive
+    private static String awaitEvents(MockHttpServletResponse response, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String stream = response.getContentAsString();
+        while (eventIds(stream).size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            stream = response.getContentAsString();
+        }
+        assertThat(eventIds(stream)).hasSize(count);
+        return stream;
+    }
+
+    private static List<String> eventIds(String stream) {
+        return matches(EVENT_ID, stream);
+    }
+
+    private static List<String> eventNames(String stream) {
+        return matches(EVENT_NAME, stream);
+    }
+
+    private static List<String> matches(Pattern pattern, String stream) {
+        List<String> values = new ArrayList<>();
+        Matcher matcher = pattern.matcher(stream);
+        while (matcher.find()) {
+            values.add(matcher.group(1));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,178 @@
+package com.northcoders.recordshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.service.CatalogVersionTracker;
+import com.northcoders.recordshop.service.RecordShopService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class ListingResponseCacheTests {
+
+    @Mock
+    RecordShopService mockRecordShopService;
+
+    MockMvc mockMvc;
+
+    ListingResponseCache listingResponseCache;
+
+    List<Album> albums = List.of(
+            new Album(1L, "Voulez-Vous", "ABBA", 1979, Genre.POP),
+            new Album(2L, "Arrival", "ABBA", 1976, Genre.POP));
+
+    @BeforeEach
+    public void setup() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        listingResponseCache = new ListingResponseCache(mockRecordShopService, objectMapper, 100, true);
+
+        RecordShopController controller = new RecordShopController();
+        controller.recordShopService = mockRecordShopService;
+        controller.objectMapper = objectMapper;
+        controller.catalogVersionTracker = new CatalogVersionTracker();
+        controller.listingResponseCache = listingResponseCache;
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    @DisplayName("Repeated GETs of the unfiltered listing are served from the cache")
+    public void testUnfilteredListingCached() throws Exception {
+        when(mockRecordShopService.getAllAlbums(0L, 2)).thenReturn(albums);
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/v1/record-shop/records").param("limit", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(header().string(RecordShopController.NEXT_CURSOR_HEADER, "2"))
+                    .andExpect(header().exists(HttpHeaders.ETAG))
+                    .andExpect(jsonPath("$[0].albumName").value("Voulez-Vous"))
+                    .andExpect(jsonPath("$[1].albumName").value("Arrival"));
+        }
+
+        verify(mockRecordShopService, times(1)).getAllAlbums(0L, 2);
+    }
+
+    @Test
+    @DisplayName("Single-genre listings are cached per genre")
+    public void testGenreListingCached() throws Exception {
+        when(mockRecordShopService.getAllAlbumsByGenre(Genre.POP, 0L, 100)).thenReturn(albums);
+        when(mockRecordShopService.getAllAlbumsByGenre(Genre.ROCK, 0L, 100)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/record-shop/records").param("genre", "pop")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/record-shop/records").param("genre", "Pop")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/record-shop/records").param("genre", "Rock"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+
+        verify(mockRecordShopService, times(1)).getAllAlbumsByGenre(Genre.POP, 0L, 100);
+        verify(mockRecordShopService, times(1)).getAllAlbumsByGenre(Genre.ROCK, 0L, 100);
+    }
+
+    @Test
+    @DisplayName("A write invalidates every cached listing")
+    public void testWriteInvalidates() throws Exception {
+        when(mockRecordShopService.getAllAlbums(0L, 100)).thenReturn(albums).thenReturn(albums.subList(0, 1));
+
+        mockMvc.perform(get("/api/v1/record-shop/records")).andExpect(jsonPath("$.length()").value(2));
+        listingResponseCache.onAlbumChange(AlbumChangeEvent.deleted(2L));
+        mockMvc.perform(get("/api/v1/record-shop/records")).andExpect(jsonPath("$.length()").value(1));
+
+        verify(mockRecordShopService, times(2)).getAllAlbums(0L, 100);
+    }
+
+    @Test
+    @DisplayName("A page built before a write commits is not served after it")
+    public void testStalePageDropped() throws Exception {
+        when(mockRecordShopService.getAllAlbums(0L, 100)).thenAnswer(invocation -> {
+            // The write's listener runs while this page is still being built
+            listingResponseCache.onAlbumChange(AlbumChangeEvent.deleted(3L));
+            return albums;
+        });
+
+        mockMvc.perform(get("/api/v1/record-shop/records")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/record-shop/records")).andExpect(status().isOk());
+
+        verify(mockRecordShopService, times(2)).getAllAlbums(0L, 100);
+    }
+
+    @Test
+    @DisplayName("Clients that accept gzip get the pre-compressed body")
+    public void testGzippedBody() throws Exception {
+        when(mockRecordShopService.getAllAlbums(0L, 100)).thenReturn(albums);
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/v1/record-shop/records").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(new String(in.readAllBytes())).isEqualTo(new ObjectMapper().writeValueAsString(albums));
+        }
+        assertThat(response.getHeader(HttpHeaders.ETAG)).endsWith("-gzip\"");
+    }
+
+    @Test
+    @DisplayName("Gzipped and plain listings have different ETags, and each only matches its own encoding")
+    public void testGzipETag() throws Exception {
+        when(mockRecordShopService.getAllAlbums(0L, 100)).thenReturn(albums);
+
+        String plainETag = mockMvc.perform(get("/api/v1/record-shop/records"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String gzipETag = mockMvc.perform(get("/api/v1/record-shop/records").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(gzipETag).isNotEqualTo(plainETag);
+
+        mockMvc.perform(get("/api/v1/record-shop/records").header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, plainETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+        mockMvc.perform(get("/api/v1/record-shop/records").header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, gzipETag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)));
+        mockMvc.perform(get("/api/v1/record-shop/records").header(HttpHeaders.IF_NONE_MATCH, plainETag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("Filtered listings and non-JSON Accept headers bypass the cache")
+    public void testBypass() throws Exception {
+        when(mockRecordShopService.getAllAlbumsByArtist("ABBA", 0L, 100)).thenReturn(albums);
+
+        mockMvc.perform(get("/api/v1/record-shop/records").param("artist", "ABBA")).andExpect(status().isOk());
+
+        assertThat(listingResponseCache.getNativeCache().estimatedSize()).isZero();
+        assertThat(ListingResponseCache.canServe(acceptRequest("application/cbor, */*;q=0.1"))).isFalse();
+        assertThat(ListingResponseCache.canServe(acceptRequest("application/json, application/cbor"))).isTrue();
+        assertThat(ListingResponseCache.canServe(acceptRequest("*/*"))).isTrue();
+    }
+
+    private static MockHttpServletRequest acceptRequest(String accept) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT, accept);
+        return request;
+    }
+}
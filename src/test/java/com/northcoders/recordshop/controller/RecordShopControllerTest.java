@@ -1,30 +1,48 @@
 package com.northcoders.recordshop.controller;
 
+import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.northcoders.recordshop.exception.BadRequestException;
+import com.northcoders.recordshop.exception.PreconditionFailedException;
 import com.northcoders.recordshop.exception.ResourceNotFoundException;
 import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.model.AlbumBatchResult;
+import com.northcoders.recordshop.model.AlbumLookupResult;
+import com.northcoders.recordshop.model.CatalogFacets;
 import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.service.CatalogVersionTracker;
 import com.northcoders.recordshop.service.RecordShopService;
+import com.northcoders.recordshop.service.RecordShopServiceImpl;
 import jakarta.servlet.ServletException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -37,6 +55,12 @@ class RecordShopControllerTest {
     @Mock
     private RecordShopService mockRecordShopService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private CatalogVersionTracker catalogVersionTracker = new CatalogVersionTracker();
+
     @InjectMocks
     private RecordShopController recordShopController;
 
@@ -47,7 +71,15 @@ class RecordShopControllerTest {
 
     @BeforeEach
     public void setup(){
-        mockMvcController = MockMvcBuilders.standaloneSetup(recordShopController).build();
+        // Reads request bodies like the application's mapper (spring.jackson.mapper.accept-case-insensitive-enums),
+        // which is what lets a genre written as "Pop" be read back as POP
+        ObjectMapper applicationMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToEnable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS)
+                .build();
+        mockMvcController = MockMvcBuilders.standaloneSetup(recordShopController)
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), new StringHttpMessageConverter(),
+                        new MappingJackson2HttpMessageConverter(applicationMapper))
+                .build();
         mapper = new ObjectMapper();
     }
 
@@ -62,7 +94,7 @@ class RecordShopControllerTest {
         albumList.add(new Album(4L, "Voulez-Vous", "ABBA", 1979, Genre.POP));
 
         //Mock method needed from other layer
-        when(mockRecordShopService.getAllAlbums()).thenReturn(albumList);
+        when(mockRecordShopService.getAllAlbums(0L, 100)).thenReturn(albumList);
 
         //Test endpoint
         this.mockMvcController.perform(
@@ -130,7 +162,7 @@ class RecordShopControllerTest {
         Album expectedAlbum = new Album(1L,"Mm..Food", "MF DOOM", 2004, Genre.HIPHOP);
         ResponseEntity<Album> expectedResponse = ResponseEntity.ok(expectedAlbum);
 
-        when(mockRecordShopService.putAlbum(albumAfterMapping, id)).thenReturn(expectedResponse);
+        when(mockRecordShopService.putAlbum(albumAfterMapping, id, null)).thenReturn(expectedResponse);
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.put("/api/v1/record-shop/records/" + id)
@@ -149,7 +181,7 @@ class RecordShopControllerTest {
         Album expectedAlbum = new Album(1L,"Mm..Food", "MF DOOM", 2004, Genre.HIPHOP);
         ResponseEntity<Album> expectedResponse = ResponseEntity.created(URI.create("/api/v1/record-shop/records/1")).body(expectedAlbum);
 
-        when(mockRecordShopService.putAlbum(albumAfterMapping, id)).thenReturn(expectedResponse);
+        when(mockRecordShopService.putAlbum(albumAfterMapping, id, null)).thenReturn(expectedResponse);
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.put("/api/v1/record-shop/records/")
@@ -159,12 +191,73 @@ class RecordShopControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(1L));
     }
 
+    @Test
+    @DisplayName("PUT request to /records/{id} with If-Match passes the version to the service layer and gives the new ETag")
+    public void testPutAlbumIfMatch() throws Exception {
+        long id = 1L;
+        Album album = new Album(0L,"Mm..Food", "MF DOOM", 2004, Genre.HIPHOP);
+        Album albumAfterMapping = new Album(0L,"Mm..Food", "MF DOOM", 2004, Genre.HIPHOP);
+        Album expectedAlbum = new Album(1L,"Mm..Food", "MF DOOM", 2004, Genre.HIPHOP);
+        expectedAlbum.setVersion(4L);
+
+        when(mockRecordShopService.putAlbum(albumAfterMapping, id, 3L)).thenReturn(ResponseEntity.ok(expectedAlbum));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.put("/api/v1/record-shop/records/" + id)
+                                .header(HttpHeaders.IF_MATCH, CatalogVersionTracker.albumETag(id, 3L))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsBytes(album)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"1-v4\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(1L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("PUT request to /records/{id} with an If-Match tag for another album throws PreconditionFailedException without calling the service layer")
+    public void testPutAlbumIfMatchOtherAlbum() throws Exception {
+        Album album = new Album(0L,"Mm..Food", "MF DOOM", 2004, Genre.HIPHOP);
+
+        ServletException exception = assertThrows(ServletException.class, () -> this.mockMvcController.perform(
+                MockMvcRequestBuilders.put("/api/v1/record-shop/records/1")
+                        .header(HttpHeaders.IF_MATCH, CatalogVersionTracker.albumETag(2L, 3L))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsBytes(album))));
+
+        assertEquals(exception.getRootCause().getClass(), PreconditionFailedException.class);
+        verifyNoInteractions(mockRecordShopService);
+    }
+
+    @Test
+    @DisplayName("DELETE request to /records/{id} with If-Match * places no condition on the version")
+    public void testDeleteAlbumIfMatchAny() throws Exception {
+        when(mockRecordShopService.deleteAlbum(1L, RecordShopServiceImpl.ANY_VERSION)).thenReturn(true);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.delete("/api/v1/record-shop/records/1").header(HttpHeaders.IF_MATCH, "*"))
+                .andExpect(MockMvcResultMatchers.status().isNoContent());
+
+        verify(mockRecordShopService).deleteAlbum(1L, RecordShopServiceImpl.ANY_VERSION);
+    }
+
+    @Test
+    @DisplayName("DELETE request to /records/{id} with If-Match passes the version to the service layer")
+    public void testDeleteAlbumIfMatch() throws Exception {
+        when(mockRecordShopService.deleteAlbum(1L, 7L)).thenReturn(true);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.delete("/api/v1/record-shop/records/1").header(HttpHeaders.IF_MATCH, "\"1-v7\""))
+                .andExpect(MockMvcResultMatchers.status().isNoContent());
+
+        verify(mockRecordShopService).deleteAlbum(1L, 7L);
+    }
+
     @Test
     @DisplayName("DELETE request to /records/{id} gives NO CONTENT status assuming valid service layer and id if service layer returns true")
     public void testDeleteAlbumValidId() throws Exception {
         long id = 1L;
 
-        when(mockRecordShopService.deleteAlbum(id)).thenReturn(true);
+        when(mockRecordShopService.deleteAlbum(id, null)).thenReturn(true);
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.delete("/api/v1/record-shop/records/" + id))
@@ -176,7 +269,7 @@ class RecordShopControllerTest {
     public void testDeleteAlbumValidIdNotInDb() throws Exception {
         long id = 1L;
 
-        when(mockRecordShopService.deleteAlbum(id)).thenReturn(false);
+        when(mockRecordShopService.deleteAlbum(id, null)).thenReturn(false);
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.delete("/api/v1/record-shop/records/" + id))
@@ -201,7 +294,7 @@ class RecordShopControllerTest {
         albums.add(new Album(2L, "The Test pt 2", "Test", 2024, Genre.POP));
         albums.add(new Album(3L, "The Test pt 3", "Test", 2024, Genre.POP));
 
-        when(mockRecordShopService.getAllAlbumsByArtist(artist)).thenReturn(albums);
+        when(mockRecordShopService.getAllAlbumsByArtist(artist, 0L, 100)).thenReturn(albums);
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.get("/api/v1/record-shop/records?artist=Test"))
@@ -223,7 +316,7 @@ class RecordShopControllerTest {
         albums.add(new Album(2L, "The Test pt 2", "Test", 2024, Genre.POP));
         albums.add(new Album(3L, "The Test pt 3", "Test", 2024, Genre.POP));
 
-        when(mockRecordShopService.getAllAlbumsByReleaseYear(year)).thenReturn(albums);
+        when(mockRecordShopService.getAllAlbumsByReleaseYear(year, 0L, 100)).thenReturn(albums);
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.get("/api/v1/record-shop/records?releaseYear=" + year))
@@ -245,7 +338,7 @@ class RecordShopControllerTest {
         albums.add(new Album(2L, "The Test pt 2", "Test", 2024, Genre.POP));
         albums.add(new Album(3L, "The Test pt 3", "Test", 2024, Genre.POP));
 
-        when(mockRecordShopService.getAllAlbumsByGenre(genre)).thenReturn(albums);
+        when(mockRecordShopService.getAllAlbumsByGenre(genre, 0L, 100)).thenReturn(albums);
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.get("/api/v1/record-shop/records?genre=Pop"))
@@ -274,7 +367,7 @@ class RecordShopControllerTest {
         List<Album> albums = new ArrayList<>();
         albums.add(new Album(1L, "The Test", "Test", 2024, Genre.POP));
 
-        when(mockRecordShopService.getAllAlbumsByName(name)).thenReturn(albums);
+        when(mockRecordShopService.getAllAlbumsByName(name, 0L, 100)).thenReturn(albums);
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.get("/api/v1/record-shop/records?albumName=" + name))
@@ -282,4 +375,257 @@ class RecordShopControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(1L))
                 .andExpect(MockMvcResultMatchers.jsonPath("$[0].albumName").value("The Test"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET request to /records with after and limit parameters passes the cursor on and returns a Next-Cursor header when the page is full")
+    public void testGetAllAlbumsWithCursor() throws Exception {
+        List<Album> albumList = new ArrayList<>();
+        albumList.add(new Album(11L, "Black Sabbath", "Black Sabbath", 1970, Genre.METAL));
+        albumList.add(new Album(12L, "Voulez-Vous", "ABBA", 1979, Genre.POP));
+
+        when(mockRecordShopService.getAllAlbums(10L, 2)).thenReturn(albumList);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records?after=10&limit=2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(RecordShopController.NEXT_CURSOR_HEADER, "12"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(11L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").value(12L));
+    }
+
+    @Test
+    @DisplayName("GET request to /records with a filter and paging parameters gives no Next-Cursor header on the last page")
+    public void testGetAlbumsByArtistLastPage() throws Exception {
+        List<Album> albums = new ArrayList<>();
+        albums.add(new Album(3L, "The Test pt 3", "Test", 2024, Genre.POP));
+
+        when(mockRecordShopService.getAllAlbumsByArtist("Test", 2L, 2)).thenReturn(albums);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records?artist=Test&after=2&limit=2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(RecordShopController.NEXT_CURSOR_HEADER))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(3L));
+    }
+
+    @Test
+    @DisplayName("GET request to /records/export streams every album from the service layer as one JSON object per line")
+    public void testExportAlbums() throws Exception {
+        List<Album> albumList = new ArrayList<>();
+        albumList.add(new Album(1L, "Black Sabbath", "Black Sabbath", 1970, Genre.METAL));
+        albumList.add(new Album(2L, "Voulez-Vous", "ABBA", 1979, Genre.POP));
+
+        doAnswer(invocation -> {
+            Consumer<Album> albumConsumer = invocation.getArgument(0);
+            albumList.forEach(albumConsumer);
+            return null;
+        }).when(mockRecordShopService).exportAllAlbums(any());
+
+        MvcResult asyncResult = this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records/export"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        this.mockMvcController.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(
+                        mapper.writeValueAsString(albumList.get(0)) + "\n" + mapper.writeValueAsString(albumList.get(1)) + "\n"));
+    }
+
+    @Test
+    @DisplayName("POST request to /records/batch gives CREATED status when every album is created and MULTI STATUS when some are rejected")
+    public void testPostAlbums() throws Exception {
+        List<Album> albums = new ArrayList<>();
+        albums.add(new Album("Mm..Food", "MF DOOM", 2004, Genre.HIPHOP));
+        albums.add(new Album("Voulez-Vous", "ABBA", 1979, Genre.POP));
+
+        List<AlbumBatchResult> allCreated = new ArrayList<>();
+        allCreated.add(AlbumBatchResult.created(0, new Album(1L, "Mm..Food", "MF DOOM", 2004, Genre.HIPHOP)));
+        allCreated.add(AlbumBatchResult.created(1, new Album(2L, "Voulez-Vous", "ABBA", 1979, Genre.POP)));
+
+        List<AlbumBatchResult> someRejected = new ArrayList<>();
+        someRejected.add(AlbumBatchResult.created(0, new Album(1L, "Mm..Food", "MF DOOM", 2004, Genre.HIPHOP)));
+        someRejected.add(AlbumBatchResult.rejected(1, "You must provide an album with all fields except id filled!"));
+
+        when(mockRecordShopService.insertNewAlbums(anyList())).thenReturn(allCreated).thenReturn(someRejected);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.post("/api/v1/record-shop/records/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsBytes(albums)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].album.id").value(2L));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.post("/api/v1/record-shop/records/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsBytes(albums)))
+                .andExpect(MockMvcResultMatchers.status().isMultiStatus())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value(400));
+    }
+
+    @Test
+    @DisplayName("GET request to /records/{id} with a matching If-None-Match gives NOT MODIFIED without calling the service layer until the album changes")
+    public void testGetAlbumByIdConditional() throws Exception {
+        Album album = new Album(1L, "Testing", "Red Green Cycle", 2024, Genre.POP);
+        album.setVersion(1L);
+        Album updatedAlbum = new Album(1L, "Testing", "Red Green Refactor", 2024, Genre.POP);
+        updatedAlbum.setVersion(2L);
+
+        when(mockRecordShopService.getAlbumById(1L)).thenReturn(album, updatedAlbum);
+
+        String eTag = this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records/1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"1-v1\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+
+        verify(mockRecordShopService, times(1)).getAlbumById(1L);
+
+        catalogVersionTracker.onAlbumChange(AlbumChangeEvent.updated(updatedAlbum));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"1-v2\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.artist").value("Red Green Refactor"));
+    }
+
+    @Test
+    @DisplayName("PUT request to /records/{id} with the ETag from a GET as If-Match updates at that version, and the old ETag is then refused")
+    public void testPutAlbumIfMatchFromGet() throws Exception {
+        Album album = new Album(1L, "Testing", "Red Green Cycle", 2024, Genre.POP);
+        album.setVersion(1L);
+        String changeJson = "{\"artist\":\"Red Green Refactor\"}";
+        Album change = new Album();
+        change.setArtist("Red Green Refactor");
+        Album updatedAlbum = new Album(1L, "Testing", "Red Green Refactor", 2024, Genre.POP);
+        updatedAlbum.setVersion(2L);
+
+        when(mockRecordShopService.getAlbumById(1L)).thenReturn(album);
+        when(mockRecordShopService.putAlbum(eq(change), eq(1L), eq(1L)))
+                .thenReturn(ResponseEntity.ok(updatedAlbum))
+                .thenThrow(new PreconditionFailedException("Album with id 1 has changed since version 1!"));
+
+        String eTag = this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records/1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.put("/api/v1/record-shop/records/1")
+                                .header(HttpHeaders.IF_MATCH, eTag)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(changeJson))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"1-v2\""));
+
+        ServletException exception = assertThrows(ServletException.class, () -> this.mockMvcController.perform(
+                MockMvcRequestBuilders.put("/api/v1/record-shop/records/1")
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(changeJson)));
+
+        assertEquals(exception.getRootCause().getClass(), PreconditionFailedException.class);
+        verify(mockRecordShopService, times(2)).putAlbum(eq(change), eq(1L), eq(1L));
+    }
+
+    @Test
+    @DisplayName("GET request to /records with a matching If-None-Match gives NOT MODIFIED without calling the service layer")
+    public void testGetAllAlbumsConditional() throws Exception {
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records").header(HttpHeaders.IF_NONE_MATCH, catalogVersionTracker.getCatalogETag()))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+
+        verify(mockRecordShopService, never()).getAllAlbums(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET request to /records/facets passes the filters to the service layer and gives OK with the counts")
+    public void testGetFacets() throws Exception {
+        Map<String, Long> genres = new LinkedHashMap<>();
+        genres.put("Pop", 2L);
+        genres.put("Rock", 1L);
+        CatalogFacets facets = new CatalogFacets(3, genres, Map.of("1970s", 3L));
+
+        when(mockRecordShopService.getFacets(Map.of("releaseYear", "1979"))).thenReturn(facets);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records/facets").param("releaseYear", "1979"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.total").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.genres.Pop").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.decades.1970s").value(3));
+    }
+
+    @Test
+    @DisplayName("GET request to /records/search gives OK and the service layer's ranked results, with a default limit of 20")
+    public void testSearchAlbums() throws Exception {
+        List<Album> albumList = List.of(new Album(4L, "Voulez-Vous", "ABBA", 1979, Genre.POP));
+
+        when(mockRecordShopService.searchAlbums("voul", 20)).thenReturn(albumList);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records/search").param("q", "voul"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(4L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].albumName").value("Voulez-Vous"));
+    }
+
+    @Test
+    @DisplayName("GET request to /records with fields gives OK and only the selected fields, with a Next-Cursor when the page is full")
+    public void testGetAlbumFields() throws Exception {
+        List<Map<String, Object>> albumList = List.of(
+                Map.of("id", 1L, "albumName", "Voulez-Vous"),
+                Map.of("id", 2L, "albumName", "Arrival"));
+
+        when(mockRecordShopService.getAlbumFields("albumName", Map.of("artist", "ABBA"), 0L, 2)).thenReturn(albumList);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records?fields=albumName&artist=ABBA&limit=2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(RecordShopController.NEXT_CURSOR_HEADER, "2"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].albumName").value("Voulez-Vous"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].artist").doesNotExist());
+
+        verify(mockRecordShopService, never()).getAllAlbumsByArtist(any(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET request to /records/{id} with fields gives OK and only the selected fields")
+    public void testGetAlbumFieldsById() throws Exception {
+        when(mockRecordShopService.getAlbumFieldsById(1L, "albumName")).thenReturn(Map.of("id", 1L, "albumName", "Testing"));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records/1").param("fields", "albumName"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(1L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.albumName").value("Testing"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.genre").doesNotExist());
+
+        verify(mockRecordShopService, never()).getAlbumById(anyLong());
+    }
+
+    @Test
+    @DisplayName("GET request to /records with ids gives OK with the albums found and the ids that weren't")
+    public void testGetAlbumsByIds() throws Exception {
+        AlbumLookupResult result = new AlbumLookupResult(
+                List.of(new Album(3L, "Mm..Food", "MF DOOM", 2004, Genre.HIPHOP), new Album(1L, "Black Sabbath", "Black Sabbath", 1970, Genre.METAL)),
+                List.of(99L));
+
+        when(mockRecordShopService.getAlbumsByIds("3,99,1")).thenReturn(result);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/record-shop/records").param("ids", "3,99,1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.albums[0].id").value(3L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.albums[1].id").value(1L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.missingIds[0]").value(99L));
+
+        verify(mockRecordShopService, never()).getAlbumById(anyLong());
+    }
+}
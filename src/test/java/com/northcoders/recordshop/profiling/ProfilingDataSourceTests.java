@@ -0,0 +1,61 @@
+package com.northcoders.recordshop.profiling;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "recordshop.sql-profiler.enabled=true")
+@ActiveProfiles("h2")
+@Transactional
+class ProfilingDataSourceTests {
+
+    @Autowired
+    SqlProfiler sqlProfiler;
+
+    @Autowired
+    RecordShopRepository recordShopRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Test
+    @DisplayName("Records queries run through the repository with the rows they returned")
+    public void testRepositoryQueriesProfiled() {
+        recordShopRepository.save(new Album("Rumours", "Fleetwood Mac", 1977, Genre.ROCK));
+        entityManager.flush();
+        sqlProfiler.reset();
+
+        recordShopRepository.findByArtistAndIdGreaterThanOrderByIdAsc("Fleetwood Mac", 0L, Limit.of(10));
+
+        assertThat(sqlProfiler.getRecentStatements())
+                .singleElement()
+                .satisfies(execution -> {
+                    assertThat(execution.sql()).containsIgnoringCase("from album");
+                    assertThat(execution.rows()).isEqualTo(1);
+                });
+    }
+
+    @Test
+    @DisplayName("Records inserts with the rows they changed")
+    public void testInsertsProfiled() {
+        sqlProfiler.reset();
+
+        recordShopRepository.save(new Album("Rumours", "Fleetwood Mac", 1977, Genre.ROCK));
+        entityManager.flush();
+
+        assertThat(sqlProfiler.getStatementSummaries())
+                .filteredOn(summary -> summary.sql().toLowerCase().startsWith("insert into album"))
+                .singleElement()
+                .satisfies(summary -> assertThat(summary.rows()).isEqualTo(1));
+    }
+}
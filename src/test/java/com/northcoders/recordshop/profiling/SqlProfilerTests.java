@@ -0,0 +1,89 @@
+package com.northcoders.recordshop.profiling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlProfilerTests {
+    private static final String SELECT = "select a1_0.id from album a1_0 where a1_0.id=?";
+
+    AsyncLogSink logSink;
+    SqlProfiler sqlProfiler;
+
+    @BeforeEach
+    public void setup() {
+        logSink = new AsyncLogSink(100);
+        sqlProfiler = new SqlProfiler(2, 100, 3, false, logSink);
+    }
+
+    @AfterEach
+    public void closeLogSink() {
+        logSink.close();
+    }
+
+    @Test
+    @DisplayName("Totals count, time and rows per statement")
+    public void testStatementSummaries() {
+        sqlProfiler.record(SELECT, 2_000_000, 1);
+        sqlProfiler.record(SELECT, 4_000_000, 0);
+
+        assertThat(sqlProfiler.getStatementSummaries())
+                .containsExactly(new SqlProfiler.StatementSummary(SELECT, 2, 6.0, 3.0, 4.0, 1));
+    }
+
+    @Test
+    @DisplayName("Only keeps the most recent executions")
+    public void testRecentStatementsRingBuffer() {
+        sqlProfiler.record("first", 1, 0);
+        sqlProfiler.record("second", 1, 0);
+        sqlProfiler.record("third", 1, 0);
+
+        assertThat(sqlProfiler.getRecentStatements())
+                .extracting(SqlProfiler.StatementExecution::sql)
+                .containsExactly("second", "third");
+    }
+
+    @Test
+    @DisplayName("Flags statements over the slow threshold")
+    public void testSlowStatements() {
+        sqlProfiler.record("fast", 99_000_000, 0);
+        sqlProfiler.record("slow", 100_000_000, 0);
+
+        assertThat(sqlProfiler.getSlowStatements())
+                .extracting(SqlProfiler.StatementExecution::sql)
+                .containsExactly("slow");
+    }
+
+    @Test
+    @DisplayName("Reports a statement repeated within one request as a possible N+1")
+    public void testNPlusOneDetection() {
+        sqlProfiler.beginRequest("GET /records");
+        sqlProfiler.record(SELECT, 1, 1);
+        sqlProfiler.record(SELECT, 1, 1);
+        sqlProfiler.record(SELECT, 1, 1);
+        sqlProfiler.record("select count(*) from album", 1, 1);
+        sqlProfiler.endRequest();
+
+        assertThat(sqlProfiler.getNPlusOneFindings())
+                .singleElement()
+                .satisfies(finding -> {
+                    assertThat(finding.request()).isEqualTo("GET /records");
+                    assertThat(finding.sql()).isEqualTo(SELECT);
+                    assertThat(finding.executions()).isEqualTo(3);
+                });
+    }
+
+    @Test
+    @DisplayName("Does not count statements outside a request towards N+1")
+    public void testNoNPlusOneOutsideRequest() {
+        sqlProfiler.record(SELECT, 1, 1);
+        sqlProfiler.record(SELECT, 1, 1);
+        sqlProfiler.record(SELECT, 1, 1);
+        sqlProfiler.endRequest();
+
+        assertThat(sqlProfiler.getNPlusOneFindings()).isEmpty();
+    }
+}
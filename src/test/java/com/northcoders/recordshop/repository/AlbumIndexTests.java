@@ -0,0 +1,89 @@
+package com.northcoders.recordshop.repository;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.service.RecordShopService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class AlbumIndexTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RecordShopService recordShopService;
+
+    @BeforeEach
+    public void seedCatalog() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            rows.add(new Object[]{"Indexed Album " + i, "Indexed Artist " + (i % 200), 1950 + (i % 70), i % Genre.values().length});
+        }
+        // Ids come from the same sequence Hibernate allocates from, so these rows can't take an id it hands out later
+        jdbcTemplate.batchUpdate("insert into album (id, album_name, artist, release_year, genre_id) "
+                + "values (nextval('album_seq'), ?, ?, ?, ?)", rows);
+        // H2 costs every column at the same default selectivity until the table is analyzed, which makes a
+        // one-column index look as good as the composite one. ANALYZE commits, so the rows are removed by hand below.
+        jdbcTemplate.execute("analyze table album");
+    }
+
+    @AfterEach
+    public void removeCatalog() {
+        jdbcTemplate.update("delete from album where album_name like 'Indexed Album %'");
+    }
+
+    private String planFor(String sql) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class).toLowerCase();
+    }
+
+    @Test
+    @DisplayName("single filter keyset queries are answered from the matching (column, id) index")
+    public void testSingleFilterQueriesUseIndexes() {
+        assertThat(planFor("select * from album where artist = 'Indexed Artist 7' and id > 0 order by id fetch first 100 rows only"))
+                .contains("idx_album_artist_id");
+        assertThat(planFor("select * from album where release_year = 1979 and id > 0 order by id fetch first 100 rows only"))
+                .contains("idx_album_release_year_id");
+        assertThat(planFor("select * from album where genre_id = 1 and id > 0 order by id fetch first 100 rows only"))
+                .contains("idx_album_genre_id_id");
+        assertThat(planFor("select * from album where album_name = 'Indexed Album 7' and id > 0 order by id fetch first 100 rows only"))
+                .contains("idx_album_album_name_id");
+    }
+
+    @Test
+    @DisplayName("common multi-filter combinations are answered from their composite index")
+    public void testMultiFilterQueriesUseCompositeIndexes() {
+        assertThat(planFor("select * from album where id > 0 and genre_id = 1 and release_year = 1979 order by id fetch first 100 rows only"))
+                .contains("idx_album_genre_id_release_year_id");
+        assertThat(planFor("select * from album where id > 0 and artist = 'Indexed Artist 7' and release_year = 1957 order by id fetch first 100 rows only"))
+                .contains("idx_album_artist_release_year_id");
+    }
+
+    @Test
+    @DisplayName("getAllAlbumsByMultipleParams only returns rows matching every filter")
+    public void testMultipleParamsMatchEveryFilter() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("genre", "Rock");
+        parameters.put("releaseYear", "1979");
+
+        List<Album> result = recordShopService.getAllAlbumsByMultipleParams(parameters, 0L, 1000);
+
+        assertThat(result).isNotEmpty();
+        assertThat(result).allMatch(album -> album.getGenreAsGenre() == Genre.ROCK && album.getReleaseYear() == 1979);
+    }
+}
@@ -0,0 +1,73 @@
+package com.northcoders.recordshop.repository;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.profiling.SqlProfiler;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "recordshop.sql-profiler.enabled=true")
+@ActiveProfiles("h2")
+@Transactional
+class AlbumProjectionRepositoryTests {
+    // Artists no other test inserts, since the in-memory database is shared with every other test class
+    private static final String POP_ARTIST = "Projection Test ABBA";
+    private static final String ROCK_ARTIST = "Projection Test Fleetwood Mac";
+
+    @Autowired
+    RecordShopRepository recordShopRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    SqlProfiler sqlProfiler;
+
+    @BeforeEach
+    public void seedCatalog() {
+        recordShopRepository.save(new Album("Voulez-Vous", POP_ARTIST, 1979, Genre.POP));
+        recordShopRepository.save(new Album("Rumours", ROCK_ARTIST, 1977, Genre.ROCK));
+        recordShopRepository.save(new Album("Arrival", POP_ARTIST, 1976, Genre.POP));
+        entityManager.flush();
+        entityManager.clear();
+        sqlProfiler.reset();
+    }
+
+    @Test
+    @DisplayName("findFieldsBy selects only the given columns, without loading any entities")
+    public void testOnlyGivenColumnsSelected() {
+        List<Map<String, Object>> rows = recordShopRepository.findFieldsBy(
+                AlbumSpecifications.hasArtist(POP_ARTIST), List.of("id", "albumName"), 10);
+
+        assertThat(rows).extracting(row -> row.get("albumName")).containsExactly("Voulez-Vous", "Arrival");
+        assertThat(rows).allSatisfy(row -> assertThat(row.keySet()).containsExactly("id", "albumName"));
+        assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+
+        String sql = sqlProfiler.getRecentStatements().get(0).sql().toLowerCase();
+        assertThat(sql).contains("album_name").doesNotContain("release_year").doesNotContain("genre_id");
+    }
+
+    @Test
+    @DisplayName("findFieldsBy writes genres by description and applies the limit in id order")
+    public void testGenreAndLimit() {
+        Specification<Album> seeded = AlbumSpecifications.hasArtist(POP_ARTIST)
+                .or(AlbumSpecifications.hasArtist(ROCK_ARTIST));
+        List<Map<String, Object>> rows = recordShopRepository.findFieldsBy(
+                seeded.and(AlbumSpecifications.idGreaterThan(0)), List.of("id", "genre"), 2);
+
+        assertThat(rows).extracting(row -> row.get("genre")).containsExactly("Pop", "Rock");
+    }
+}
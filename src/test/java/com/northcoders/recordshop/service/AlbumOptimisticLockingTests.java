@@ -0,0 +1,111 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.exception.ConcurrentUpdateException;
+import com.northcoders.recordshop.exception.PreconditionFailedException;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Version checks against a real database: stale If-Match versions are refused, and concurrent partial updates to
+ * different fields never overwrite each other, whether made in one statement or retried under If-Match: *.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class AlbumOptimisticLockingTests {
+    private static final int UPDATES_PER_WRITER = 50;
+
+    @Autowired
+    RecordShopService recordShopService;
+
+    @Autowired
+    RecordShopRepository recordShopRepository;
+
+    private long albumId;
+
+    @BeforeEach
+    public void seedAlbum() {
+        albumId = recordShopRepository.save(new Album("Contended", "Nobody Yet", 2000, Genre.JAZZ)).getId();
+    }
+
+    @AfterEach
+    public void removeAlbum() {
+        recordShopRepository.deleteById(albumId);
+    }
+
+    @Test
+    @DisplayName("Every update bumps the version, and an update or delete at an older version is refused with the row left alone")
+    public void testStaleVersionRefused() {
+        assertThat(recordShopRepository.findById(albumId).orElseThrow().getVersion()).isZero();
+
+        Album updated = recordShopService.putAlbum(new Album(null, "Somebody", 2001, null), albumId, 0L).getBody();
+        assertThat(updated.getVersion()).isEqualTo(1L);
+
+        assertThrows(PreconditionFailedException.class,
+                () -> recordShopService.putAlbum(new Album(null, "Someone Else", 2002, null), albumId, 0L));
+        assertThrows(PreconditionFailedException.class, () -> recordShopService.deleteAlbum(albumId, 0L));
+
+        Album current = recordShopRepository.findById(albumId).orElseThrow();
+        assertThat(current.getArtist()).isEqualTo("Somebody");
+        assertThat(current.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Concurrent partial updates to different fields all land, one version each")
+    public void testConcurrentPartialUpdatesNotLost() throws Exception {
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger lastArtist = new AtomicInteger(-1);
+        AtomicInteger lastYear = new AtomicInteger(-1);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService writers = Executors.newFixedThreadPool(2);
+
+        Future<?> artistWriter = writers.submit(() -> {
+            start.await();
+            for (int i = 0; i < UPDATES_PER_WRITER; i++) {
+                Album change = new Album();
+                change.setArtist("Artist " + i);
+                recordShopService.putAlbum(change, albumId);
+                lastArtist.set(i);
+                applied.incrementAndGet();
+            }
+            return null;
+        });
+        Future<?> yearWriter = writers.submit(() -> {
+            start.await();
+            for (int i = 0; i < UPDATES_PER_WRITER; i++) {
+                try {
+                    recordShopService.putAlbum(new Album(null, null, 1900 + i, null), albumId, RecordShopServiceImpl.ANY_VERSION);
+                    lastYear.set(i);
+                    applied.incrementAndGet();
+                } catch (ConcurrentUpdateException e) {
+                    // Lost every retry; the album is left as the other writer made it
+                }
+            }
+            return null;
+        });
+
+        start.countDown();
+        artistWriter.get(60, TimeUnit.SECONDS);
+        yearWriter.get(60, TimeUnit.SECONDS);
+        writers.shutdown();
+
+        Album current = recordShopRepository.findById(albumId).orElseThrow();
+        assertThat(current.getVersion()).isEqualTo(applied.get());
+        assertThat(current.getArtist()).isEqualTo("Artist " + lastArtist.get());
+        assertThat(current.getReleaseYear()).isEqualTo(1900 + lastYear.get());
+        assertThat(current.getAlbumName()).isEqualTo("Contended");
+    }
+}
@@ -0,0 +1,99 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.model.Genre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class AlbumSearchIndexTests {
+
+    @Mock
+    RecordShopService mockRecordShopService;
+
+    @InjectMocks
+    AlbumSearchIndex albumSearchIndex;
+
+    List<Album> catalog = List.of(
+            new Album(1L, "Voulez-Vous", "ABBA", 1979, Genre.POP),
+            new Album(2L, "Abbey Road", "The Beatles", 1969, Genre.ROCK),
+            new Album(3L, "Rumours", "Fleetwood Mac", 1977, Genre.ROCK),
+            new Album(4L, "Highway to Hell", "AC/DC", 1979, Genre.ROCK),
+            new Album(5L, "Lemonade", "Beyonc\u00e9", 2016, Genre.RNB),
+            new Album(6L, "Revolver", "The Beatles", 1966, Genre.ROCK),
+            new Album(7L, "Rumour Has It", "Adele", 2011, Genre.POP));
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void loadCatalog() {
+        doAnswer(invocation -> {
+            catalog.forEach(invocation.getArgument(0, Consumer.class));
+            return null;
+        }).when(mockRecordShopService).exportAllAlbums(any());
+
+        albumSearchIndex.load();
+    }
+
+    @Test
+    @DisplayName("Matches words case-insensitively")
+    public void testLowerCaseWord() {
+        assertThat(albumSearchIndex.search("beatles", 10)).extracting(Album::getId).containsExactly(2L, 6L);
+    }
+
+    @Test
+    @DisplayName("Treats the last word as a prefix")
+    public void testPrefix() {
+        assertThat(albumSearchIndex.search("Voul", 10)).extracting(Album::getId).containsExactly(1L);
+        assertThat(albumSearchIndex.search("beatles ab", 10)).extracting(Album::getId).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Ignores accents and punctuation")
+    public void testNormalisation() {
+        assertThat(albumSearchIndex.search("beyonce", 10)).extracting(Album::getId).containsExactly(5L);
+        assertThat(albumSearchIndex.search("acdc", 10)).extracting(Album::getId).containsExactly(4L);
+    }
+
+    @Test
+    @DisplayName("Tolerates typos")
+    public void testTypos() {
+        assertThat(albumSearchIndex.search("fleetwod", 10)).extracting(Album::getId).containsExactly(3L);
+        assertThat(albumSearchIndex.search("rumuors", 10)).extracting(Album::getId).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("Ranks exact word matches above prefix matches")
+    public void testRanking() {
+        assertThat(albumSearchIndex.search("rumour", 10)).extracting(Album::getId).containsExactly(7L, 3L);
+    }
+
+    @Test
+    @DisplayName("Stops at the limit")
+    public void testLimit() {
+        assertThat(albumSearchIndex.search("the", 1)).extracting(Album::getId).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Follows updates and deletes")
+    public void testFollowsChanges() {
+        albumSearchIndex.onAlbumChange(AlbumChangeEvent.updated(new Album(1L, "Arrival", "ABBA", 1976, Genre.POP)));
+        albumSearchIndex.onAlbumChange(AlbumChangeEvent.deleted(6L));
+
+        assertThat(albumSearchIndex.search("voulez", 10)).isEmpty();
+        assertThat(albumSearchIndex.search("arrival", 10)).extracting(Album::getId).containsExactly(1L);
+        assertThat(albumSearchIndex.search("revolver", 10)).isEmpty();
+    }
+}
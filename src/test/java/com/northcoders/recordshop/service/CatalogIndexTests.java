@@ -0,0 +1,111 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.model.CatalogFacets;
+import com.northcoders.recordshop.model.Genre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.util.Map.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogIndexTests {
+
+    @Mock
+    RecordShopService mockRecordShopService;
+
+    @InjectMocks
+    CatalogIndex catalogIndex;
+
+    List<Album> catalog = List.of(
+            new Album(1L, "Voulez-Vous", "ABBA", 1979, Genre.POP),
+            new Album(2L, "Arrival", "ABBA", 1976, Genre.POP),
+            new Album(3L, "Rumours", "Fleetwood Mac", 1977, Genre.ROCK),
+            new Album(4L, "Highway to Hell", "AC/DC", 1979, Genre.ROCK),
+            new Album(5L, "Off the Wall", "Michael Jackson", 1979, Genre.POP),
+            new Album(6L, "Mm..Food", "MF DOOM", 2004, Genre.HIPHOP));
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void loadCatalog() {
+        doAnswer(invocation -> {
+            catalog.forEach(invocation.getArgument(0, Consumer.class));
+            return null;
+        }).when(mockRecordShopService).exportAllAlbums(any());
+
+        catalogIndex.load();
+    }
+
+    @Test
+    @DisplayName("Is ready once the catalog has loaded")
+    public void testReadyAfterLoad() {
+        assertThat(catalogIndex.isReady()).isTrue();
+    }
+
+    @Test
+    @DisplayName("find intersects genre and release year")
+    public void testFindGenreAndReleaseYear() {
+        List<Album> result = catalogIndex.find(null, 1979, Genre.POP, null, 0L, 100);
+
+        assertThat(result).containsExactly(catalog.get(0), catalog.get(4));
+    }
+
+    @Test
+    @DisplayName("find filters an artist's albums by the other filters")
+    public void testFindArtistAndReleaseYear() {
+        List<Album> result = catalogIndex.find("ABBA", 1976, null, null, 0L, 100);
+
+        assertThat(result).containsExactly(catalog.get(1));
+    }
+
+    @Test
+    @DisplayName("find seeks past the cursor and stops at the limit")
+    public void testFindPages() {
+        assertThat(catalogIndex.find(null, 1979, null, null, 0L, 2)).containsExactly(catalog.get(0), catalog.get(3));
+        assertThat(catalogIndex.find(null, 1979, null, null, 4L, 2)).containsExactly(catalog.get(4));
+    }
+
+    @Test
+    @DisplayName("Updates move an album between genres and deletes remove it")
+    public void testFollowsChanges() {
+        catalogIndex.onAlbumChange(AlbumChangeEvent.updated(new Album(4L, "Highway to Hell", "AC/DC", 1979, Genre.METAL)));
+        catalogIndex.onAlbumChange(AlbumChangeEvent.deleted(5L));
+        catalogIndex.onAlbumChange(AlbumChangeEvent.inserted(new Album(7L, "Discovery", "Daft Punk", 2001, Genre.POP)));
+
+        assertThat(catalogIndex.find(null, 1979, Genre.ROCK, null, 0L, 100)).isEmpty();
+        assertThat(catalogIndex.find(null, 1979, Genre.METAL, null, 0L, 100)).extracting(Album::getId).containsExactly(4L);
+        assertThat(catalogIndex.find(null, null, Genre.POP, null, 0L, 100)).extracting(Album::getId).containsExactly(1L, 2L, 7L);
+    }
+
+    @Test
+    @DisplayName("facets counts matching albums per genre and decade")
+    public void testFacets() {
+        CatalogFacets facets = catalogIndex.facets(null, null, null, null);
+
+        assertThat(facets.getTotal()).isEqualTo(6);
+        assertThat(facets.getGenres()).containsEntry("Pop", 3L).containsEntry("Rock", 2L).containsEntry("Hip-Hop", 1L).containsEntry("Jazz", 0L);
+        assertThat(facets.getDecades()).containsExactly(entry("1970s", 5L), entry("2000s", 1L));
+    }
+
+    @Test
+    @DisplayName("facets only counts albums matching the current filter")
+    public void testFacetsFiltered() {
+        CatalogFacets facets = catalogIndex.facets(null, 1979, null, null);
+
+        assertThat(facets.getTotal()).isEqualTo(3);
+        assertThat(facets.getGenres()).containsEntry("Pop", 2L).containsEntry("Rock", 1L);
+        assertThat(facets.getDecades()).containsExactly(entry("1970s", 3L));
+    }
+}
@@ -0,0 +1,98 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogSnapshotFileTests {
+
+    @TempDir
+    Path directory;
+
+    List<Album> albums = List.of(
+            versioned(new Album(3L, "Voulez-Vous", "ABBA", 1979, Genre.POP), 2),
+            versioned(new Album(8L, "Homogenic", "Björk", 1997, Genre.POP), 0),
+            versioned(new Album(21L, "Arrival", "ABBA", 1976, Genre.POP), 5),
+            versioned(new Album(34L, "Kind of Blue", "Miles Davis", 1959, Genre.JAZZ), 1));
+
+    @Test
+    @DisplayName("A written snapshot maps back to the same albums, with their versions, found by id")
+    public void testRoundTrip() throws IOException {
+        Path file = directory.resolve("catalog.snapshot");
+
+        assertThat(CatalogSnapshotFile.write(file, albums::forEach)).isEqualTo(4);
+        CatalogSnapshotFile snapshot = CatalogSnapshotFile.open(file);
+
+        assertThat(snapshot.size()).isEqualTo(4);
+        assertThat(snapshot.getMaxId()).isEqualTo(34L);
+        for (Album album : albums) {
+            Album found = snapshot.find(album.getId());
+            assertThat(found).isEqualTo(album);
+            assertThat(found.getVersion()).isEqualTo(album.getVersion());
+        }
+        assertThat(snapshot.find(4L)).isNull();
+        assertThat(snapshot.find(35L)).isNull();
+        assertThat(snapshot.indexOf(21L)).isEqualTo(2);
+        assertThat(snapshot.versionAt(2)).isEqualTo(5L);
+    }
+
+    @Test
+    @DisplayName("Each artist's name is stored once, so records for the same artist share it")
+    public void testArtistsStoredOnce() throws IOException {
+        Path file = directory.resolve("catalog.snapshot");
+
+        CatalogSnapshotFile.write(file, albums::forEach);
+
+        // Header, four records, then the heap: every album name, and "ABBA" only once
+        long heapSize = "Voulez-VousABBAHomogenicBjörkArrivalKind of BlueMiles Davis".getBytes(StandardCharsets.UTF_8).length;
+        assertThat(Files.size(file)).isEqualTo(32 + 4 * 40 + heapSize);
+    }
+
+    @Test
+    @DisplayName("Albums out of id order are refused and leave any existing snapshot in place")
+    public void testOutOfOrderRefused() throws IOException {
+        Path file = directory.resolve("catalog.snapshot");
+        CatalogSnapshotFile.write(file, albums::forEach);
+
+        assertThrows(IOException.class, () -> CatalogSnapshotFile.write(file, List.of(albums.get(2), albums.get(0))::forEach));
+
+        assertThat(CatalogSnapshotFile.open(file).size()).isEqualTo(4);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    @Test
+    @DisplayName("A file that isn't a whole snapshot can't be opened")
+    public void testTruncatedFileRefused() throws IOException {
+        Path file = directory.resolve("catalog.snapshot");
+        CatalogSnapshotFile.write(file, albums::forEach);
+        byte[] bytes = Files.readAllBytes(file);
+
+        Path truncated = directory.resolve("truncated.snapshot");
+        Files.write(truncated, Arrays.copyOf(bytes, 100));
+        Path notSnapshot = directory.resolve("other.snapshot");
+        Files.writeString(notSnapshot, "not a snapshot, but long enough to have a header");
+
+        assertThrows(IOException.class, () -> CatalogSnapshotFile.open(truncated));
+        assertThrows(IOException.class, () -> CatalogSnapshotFile.open(notSnapshot));
+    }
+
+    private static Album versioned(Album album, long version) {
+        album.setVersion(version);
+        return album;
+    }
+}
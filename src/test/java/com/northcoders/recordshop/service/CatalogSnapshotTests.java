@@ -0,0 +1,123 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Warm start against a real database. The snapshot under test is built by hand rather than as a bean, so it hears
+ * of no writes except the ones a test hands it, just like a node starting up after other nodes made them.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class CatalogSnapshotTests {
+
+    @Autowired
+    RecordShopService recordShopService;
+
+    @Autowired
+    RecordShopRepository recordShopRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @TempDir
+    Path directory;
+
+    CatalogSnapshot catalogSnapshot;
+    Album unchanged;
+    Album renamed;
+    Album deleted;
+    Album inserted;
+
+    @BeforeEach
+    public void writeSnapshot() throws Exception {
+        unchanged = recordShopRepository.save(new Album("Voulez-Vous", "ABBA", 1979, Genre.POP));
+        renamed = recordShopRepository.save(new Album("Rumours", "Fleetwood Mac", 1977, Genre.ROCK));
+        deleted = recordShopRepository.save(new Album("Arrival", "ABBA", 1976, Genre.POP));
+
+        catalogSnapshot = new CatalogSnapshot();
+        catalogSnapshot.recordShopService = recordShopService;
+        catalogSnapshot.recordShopRepository = recordShopRepository;
+        catalogSnapshot.jdbcTemplate = jdbcTemplate;
+        catalogSnapshot.cacheManager = cacheManager;
+        catalogSnapshot.meterRegistry = new SimpleMeterRegistry();
+        catalogSnapshot.file = directory.resolve("catalog.snapshot").toString();
+        catalogSnapshot.write();
+
+        // Made behind the snapshot's back, as another node would
+        jdbcTemplate.update("update album set album_name = 'Rumours (Deluxe)', version = version + 1 where id = ?", renamed.getId());
+        jdbcTemplate.update("delete from album where id = ?", deleted.getId());
+        inserted = recordShopRepository.save(new Album("Kind of Blue", "Miles Davis", 1959, Genre.JAZZ));
+
+        catalogSnapshot.start();
+    }
+
+    @AfterEach
+    public void removeAlbums() throws Exception {
+        catalogSnapshot.stop();
+        jdbcTemplate.update("delete from album where id in (?, ?, ?)", unchanged.getId(), renamed.getId(), inserted.getId());
+    }
+
+    @Test
+    @DisplayName("Lookups are answered from the mapped snapshot as soon as it is opened, as of when it was written")
+    public void testServesBeforeReconciling() {
+        assertThat(catalogSnapshot.isServing()).isTrue();
+        assertThat(catalogSnapshot.isReconciled()).isFalse();
+
+        assertThat(catalogSnapshot.find(unchanged.getId())).isEqualTo(unchanged);
+        assertThat(catalogSnapshot.find(renamed.getId()).getAlbumName()).isEqualTo("Rumours");
+        assertThat(catalogSnapshot.find(deleted.getId())).isEqualTo(deleted);
+        assertThat(catalogSnapshot.find(inserted.getId())).isNull();
+    }
+
+    @Test
+    @DisplayName("Reconciling picks up albums inserted, changed and deleted since the snapshot was written")
+    public void testReconcile() {
+        catalogSnapshot.reconcile();
+
+        assertThat(catalogSnapshot.isReconciled()).isTrue();
+        assertThat(catalogSnapshot.find(unchanged.getId())).isEqualTo(unchanged);
+        assertThat(catalogSnapshot.find(renamed.getId()).getAlbumName()).isEqualTo("Rumours (Deluxe)");
+        assertThat(catalogSnapshot.find(renamed.getId()).getVersion()).isEqualTo(1L);
+        assertThat(catalogSnapshot.find(deleted.getId())).isNull();
+        assertThat(catalogSnapshot.find(inserted.getId())).isEqualTo(inserted);
+    }
+
+    @Test
+    @DisplayName("Writes made after startup are followed, and a write whose version isn't known sends lookups to the database")
+    public void testFollowsWrites() {
+        catalogSnapshot.reconcile();
+
+        Album updated = new Album(unchanged.getId(), "Voulez-Vous (Remastered)", "ABBA", 1979, Genre.POP);
+        updated.setVersion(1L);
+        catalogSnapshot.onAlbumChange(AlbumChangeEvent.updated(updated));
+        assertThat(catalogSnapshot.find(unchanged.getId())).isEqualTo(updated);
+
+        catalogSnapshot.onAlbumChange(AlbumChangeEvent.updated(new Album(renamed.getId(), "Tusk", "Fleetwood Mac", 1979, Genre.ROCK)));
+        assertThat(catalogSnapshot.find(renamed.getId())).isNull();
+
+        catalogSnapshot.stopServing();
+        assertThat(catalogSnapshot.isServing()).isFalse();
+        assertThat(catalogSnapshot.find(inserted.getId())).isNull();
+    }
+}
@@ -0,0 +1,128 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.exception.PreconditionFailedException;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class RecordShopServiceCacheTests {
+
+    @MockBean
+    RecordShopRepository mockRecordShopRepository;
+
+    @Autowired
+    RecordShopService recordShopService;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @BeforeEach
+    public void clearCache() {
+        cacheManager.getCache(RecordShopServiceImpl.ALBUM_CACHE).clear();
+    }
+
+    @Test
+    @DisplayName("getAlbumById only goes to the repository on the first lookup of an id")
+    public void testGetAlbumByIdIsCached() {
+        Album album = new Album(1L, "Testing", "Red Green Cycle", 2024, Genre.POP);
+        when(mockRecordShopRepository.findById(1L)).thenReturn(Optional.of(album));
+
+        assertThat(recordShopService.getAlbumById(1L)).isEqualTo(album);
+        assertThat(recordShopService.getAlbumById(1L)).isEqualTo(album);
+
+        verify(mockRecordShopRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("putAlbum evicts the cached album so the next lookup sees the update")
+    public void testPutAlbumEvictsCachedAlbum() {
+        Album original = albumAtVersion(Genre.POP, 1L);
+        Album updated = albumAtVersion(Genre.ROCK, 2L);
+        when(mockRecordShopRepository.findById(1L)).thenReturn(Optional.of(original)).thenReturn(Optional.of(updated));
+        when(mockRecordShopRepository.updateAlbumFields(1L, null, null, null, Genre.ROCK)).thenReturn(1);
+
+        Album change = new Album();
+        change.setGenre(Genre.ROCK);
+
+        recordShopService.getAlbumById(1L);
+        recordShopService.putAlbum(change, 1L);
+
+        Album afterUpdate = recordShopService.getAlbumById(1L);
+        assertThat(afterUpdate).isEqualTo(updated);
+        assertThat(afterUpdate.getVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("putAlbum with a matching expected version evicts the cached album so the next lookup sees the new version")
+    public void testPutAlbumIfMatchEvictsCachedAlbum() {
+        Album original = albumAtVersion(Genre.POP, 1L);
+        Album updated = albumAtVersion(Genre.ROCK, 2L);
+        when(mockRecordShopRepository.findById(1L)).thenReturn(Optional.of(original)).thenReturn(Optional.of(albumAtVersion(Genre.POP, 1L))).thenReturn(Optional.of(updated));
+        when(mockRecordShopRepository.updateAlbumFieldsIfVersion(1L, null, null, null, Genre.ROCK, 1L)).thenReturn(1);
+
+        Album change = new Album();
+        change.setGenre(Genre.ROCK);
+
+        recordShopService.getAlbumById(1L);
+        assertThat(recordShopService.putAlbum(change, 1L, 1L).getBody().getVersion()).isEqualTo(2L);
+
+        Album afterUpdate = recordShopService.getAlbumById(1L);
+        assertThat(afterUpdate).isEqualTo(updated);
+        assertThat(afterUpdate.getVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("putAlbum with a stale expected version throws PreconditionFailedException and leaves the cached album in place")
+    public void testPutAlbumStaleVersionKeepsCachedAlbum() {
+        Album original = albumAtVersion(Genre.POP, 1L);
+        when(mockRecordShopRepository.findById(1L)).thenReturn(Optional.of(original));
+        when(mockRecordShopRepository.updateAlbumFieldsIfVersion(1L, "Testing", "Red Green Cycle", 2024, Genre.ROCK, 0L)).thenReturn(0);
+        when(mockRecordShopRepository.existsById(1L)).thenReturn(true);
+
+        recordShopService.getAlbumById(1L);
+        assertThrows(PreconditionFailedException.class, () -> recordShopService.putAlbum(albumAtVersion(Genre.ROCK, 0L), 1L, 0L));
+
+        Album afterFailedUpdate = recordShopService.getAlbumById(1L);
+        assertThat(afterFailedUpdate).isEqualTo(original);
+        assertThat(afterFailedUpdate.getVersion()).isEqualTo(1L);
+        verify(mockRecordShopRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("insertNewAlbum caches the created album and deleteAlbum evicts it")
+    public void testInsertCachesAndDeleteEvicts() {
+        Album album = new Album("Testing", "Red Green Cycle", 2024, Genre.POP);
+        Album created = new Album(7L, "Testing", "Red Green Cycle", 2024, Genre.POP);
+        when(mockRecordShopRepository.save(album)).thenReturn(created);
+        when(mockRecordShopRepository.existsById(7L)).thenReturn(true);
+
+        recordShopService.insertNewAlbum(album);
+        assertThat(recordShopService.getAlbumById(7L)).isEqualTo(created);
+        verify(mockRecordShopRepository, never()).findById(7L);
+
+        recordShopService.deleteAlbum(7L);
+        assertThat(cacheManager.getCache(RecordShopServiceImpl.ALBUM_CACHE).get(7L)).isNull();
+    }
+
+    private static Album albumAtVersion(Genre genre, long version) {
+        Album album = new Album(1L, "Testing", "Red Green Cycle", 2024, genre);
+        album.setVersion(version);
+        return album;
+    }
+}
@@ -1,16 +1,28 @@
 package com.northcoders.recordshop.service;
 
 import com.northcoders.recordshop.exception.BadRequestException;
+import com.northcoders.recordshop.exception.ConcurrentUpdateException;
+import com.northcoders.recordshop.exception.PreconditionFailedException;
 import com.northcoders.recordshop.exception.ResourceNotFoundException;
 import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.AlbumBatchResult;
+import com.northcoders.recordshop.model.AlbumChangeEvent;
+import com.northcoders.recordshop.model.AlbumLookupResult;
 import com.northcoders.recordshop.model.Genre;
 import com.northcoders.recordshop.repository.RecordShopRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -19,6 +31,14 @@ import java.util.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -27,6 +47,22 @@ class RecordShopServiceTests {
     @Mock
     RecordShopRepository mockRecordShopRepository;
 
+    @Mock
+    EntityManager mockEntityManager;
+
+    @Mock
+    ApplicationEventPublisher mockEventPublisher;
+
+    // Named after the fields they replace, as both share the ObjectProvider type
+    @Mock(name = "catalogIndex")
+    ObjectProvider<CatalogIndex> mockCatalogIndexProvider;
+
+    @Mock(name = "albumSearchIndex")
+    ObjectProvider<AlbumSearchIndex> mockAlbumSearchIndexProvider;
+
+    @Mock(name = "catalogSnapshot")
+    ObjectProvider<CatalogSnapshot> mockCatalogSnapshotProvider;
+
     @InjectMocks
     RecordShopServiceImpl recordShopService;
 
@@ -44,10 +80,10 @@ class RecordShopServiceTests {
             albumList.add(new Album("Voulez-Vous", "ABBA", 1979, Genre.POP));
 
             //Mock method needed from other layer
-            when(mockRecordShopRepository.findAll()).thenReturn(albumList);
+            when(mockRecordShopRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(100))).thenReturn(albumList);
 
             //Act
-            List<Album> result = recordShopService.getAllAlbums();
+            List<Album> result = recordShopService.getAllAlbums(0L, 100);
 
             //Assert
             assertThat(result).hasSize(4);
@@ -59,9 +95,31 @@ class RecordShopServiceTests {
         void TestGetAllAlbumsWhileThereAreNone() {
             List<Album> emptyAlbumList = new ArrayList<>();
 
-            when(mockRecordShopRepository.findAll()).thenReturn(emptyAlbumList);
+            when(mockRecordShopRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(100))).thenReturn(emptyAlbumList);
 
-            ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbums());
+            ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbums(0L, 100));
+        }
+    }
+
+
+    @Nested
+    @DisplayName("exportAllAlbums tests")
+    class ExportAllAlbumsTests {
+        @Test
+        @DisplayName("exportAllAlbums hands every streamed album to the consumer and detaches it afterwards")
+        void testExportAllAlbums() {
+            List<Album> albumList = new ArrayList<>();
+            albumList.add(new Album(1L, "Black Sabbath", "Black Sabbath", 1970, Genre.METAL));
+            albumList.add(new Album(2L, "Mm..Food", "MF DOOM", 2004, Genre.HIPHOP));
+            albumList.add(new Album(3L, "Voulez-Vous", "ABBA", 1979, Genre.POP));
+
+            when(mockRecordShopRepository.streamAllByOrderByIdAsc()).thenReturn(albumList.stream());
+
+            List<Album> exported = new ArrayList<>();
+            recordShopService.exportAllAlbums(exported::add);
+
+            assertThat(exported).isEqualTo(albumList);
+            albumList.forEach(album -> verify(mockEntityManager, times(1)).detach(album));
         }
     }
 
@@ -88,6 +146,16 @@ class RecordShopServiceTests {
 
             assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAlbumById(1L));
         }
+
+        @Test
+        @DisplayName("getAlbumById not finding an album doesn't capture a stack trace")
+        void testGetAlbumByIdNotFoundIsStackless() {
+            when(mockRecordShopRepository.findById(1L)).thenReturn(Optional.empty());
+
+            ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAlbumById(1L));
+
+            assertThat(exception.getStackTrace()).isEmpty();
+        }
     }
 
 
@@ -117,6 +185,47 @@ class RecordShopServiceTests {
     }
 
 
+    @Nested
+    @DisplayName("insertNewAlbums tests")
+    class InsertNewAlbumsTests {
+        @Test
+        @DisplayName("insertNewAlbums saves valid albums and reports a result for every item, rejecting invalid ones with the insertNewAlbum rules")
+        void testInsertNewAlbumsMixedInput() {
+            List<Album> albums = new ArrayList<>();
+            albums.add(new Album("Testing", "Red Green Cycle", 2024, Genre.POP));
+            albums.add(new Album(5L, "Nostalgia Critic's The Wall", "Doug Walker", 2019, Genre.ROCK));
+            albums.add(null);
+            albums.add(new Album("Voulez-Vous", "ABBA", 1979, Genre.POP));
+
+            when(mockRecordShopRepository.save(any(Album.class))).thenAnswer(answer -> {
+                Album album = answer.getArgument(0);
+                album.setId(album.getArtist().length());
+                return album;});
+
+            List<AlbumBatchResult> results = recordShopService.insertNewAlbums(albums);
+
+            assertThat(results).extracting(AlbumBatchResult::getIndex).containsExactly(0, 1, 2, 3);
+            assertThat(results).extracting(AlbumBatchResult::getStatus).containsExactly(201, 400, 400, 201);
+            assertThat(results.get(0).getAlbum().getId()).isEqualTo(15L);
+            assertThat(results.get(1).getAlbum()).isNull();
+            verify(mockRecordShopRepository, times(2)).save(any(Album.class));
+        }
+
+        @Test
+        @DisplayName("insertNewAlbums throws BadRequestException when given no albums or more than the maximum batch size")
+        void testInsertNewAlbumsBadBatch() {
+            List<Album> tooMany = new ArrayList<>();
+            for (int i = 0; i <= RecordShopServiceImpl.MAX_BATCH_SIZE; i++) {
+                tooMany.add(new Album("Testing", "Red Green Cycle", 2024, Genre.POP));
+            }
+
+            assertThrows(BadRequestException.class, () -> recordShopService.insertNewAlbums(null));
+            assertThrows(BadRequestException.class, () -> recordShopService.insertNewAlbums(new ArrayList<>()));
+            assertThrows(BadRequestException.class, () -> recordShopService.insertNewAlbums(tooMany));
+        }
+    }
+
+
     @Nested
     @DisplayName("putAlbum tests")
     class PutAlbumTests {
@@ -129,13 +238,36 @@ class RecordShopServiceTests {
             Album expectedAlbum = new Album(1L, "Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK);
             ResponseEntity<Album> expectedResult = new ResponseEntity<>(expectedAlbum, HttpStatus.OK);
 
-            when(mockRecordShopRepository.existsById(id)).thenReturn(true);
+            albumFromRepo.setVersion(2L);
+
+            when(mockRecordShopRepository.updateAlbumFields(id, null, "Stiff Little Fingers", 1979, Genre.ROCK)).thenAnswer(answer -> {
+                albumFromRepo.setArtist("Stiff Little Fingers");
+                albumFromRepo.setReleaseYear(1979);
+                albumFromRepo.setGenre(Genre.ROCK);
+                albumFromRepo.setVersion(3L);
+                return 1;});
             when(mockRecordShopRepository.findById(id)).thenReturn(Optional.of(albumFromRepo));
-            when(mockRecordShopRepository.save(expectedAlbum)).thenReturn(expectedAlbum);
 
             ResponseEntity<Album> result = recordShopService.putAlbum(albumToGive, id);
 
             assertThat(result).isEqualTo(expectedResult);
+            assertThat(result.getBody().getVersion()).isEqualTo(3L);
+            verify(mockRecordShopRepository, never()).updateAlbumFieldsIfVersion(any(), any(), any(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("putAlbum with every field supplied updates in one statement and doesn't read the album back")
+        void testPutAlbumValidIdCompleteBodySkipsReadBack() {
+            long id = 1L;
+            Album albumToGive = new Album("Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK);
+            Album expectedAlbum = new Album(1L, "Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK);
+
+            when(mockRecordShopRepository.updateAlbumFields(id, "Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK)).thenReturn(1);
+
+            ResponseEntity<Album> result = recordShopService.putAlbum(albumToGive, id);
+
+            assertThat(result).isEqualTo(ResponseEntity.ok(expectedAlbum));
+            verify(mockRecordShopRepository, never()).findById(id);
         }
 
         @Test
@@ -144,11 +276,90 @@ class RecordShopServiceTests {
             long id = 1L;
             Album albumToGive = new Album("Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK);
 
-            when(mockRecordShopRepository.existsById(id)).thenReturn(false);
+            when(mockRecordShopRepository.updateAlbumFields(id, "Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK)).thenReturn(0);
 
             assertThrows(ResourceNotFoundException.class, () -> recordShopService.putAlbum(albumToGive, id));
         }
 
+        @Test
+        @DisplayName("putAlbum with any version expected reads the album again and retries when another update gets in first")
+        void testPutAlbumPartialRetriesOnConflict() {
+            long id = 1L;
+            Album albumToGive = new Album(null, "Stiff Little Fingers", 1979, null);
+            Album firstRead = new Album(1L, "Inflammable Material", "Flexible Large Toes", 11979, Genre.JAZZ);
+            firstRead.setVersion(2L);
+            Album secondRead = new Album(1L, "Inflammable Material", "Flexible Large Toes", 11979, Genre.METAL);
+            secondRead.setVersion(3L);
+
+            when(mockRecordShopRepository.findById(id)).thenReturn(Optional.of(firstRead)).thenReturn(Optional.of(secondRead));
+            when(mockRecordShopRepository.updateAlbumFieldsIfVersion(id, null, "Stiff Little Fingers", 1979, null, 2L)).thenReturn(0);
+            when(mockRecordShopRepository.updateAlbumFieldsIfVersion(id, null, "Stiff Little Fingers", 1979, null, 3L)).thenReturn(1);
+
+            Album result = recordShopService.putAlbum(albumToGive, id, RecordShopServiceImpl.ANY_VERSION).getBody();
+
+            assertThat(result).isEqualTo(new Album(1L, "Inflammable Material", "Stiff Little Fingers", 1979, Genre.METAL));
+            assertThat(result.getVersion()).isEqualTo(4L);
+        }
+
+        @Test
+        @DisplayName("putAlbum with any version expected gives up with a ConcurrentUpdateException after MAX_UPDATE_ATTEMPTS conflicts")
+        void testPutAlbumPartialGivesUpAfterMaxAttempts() {
+            long id = 1L;
+            Album albumToGive = new Album(null, "Stiff Little Fingers", 1979, null);
+            Album albumFromRepo = new Album(1L, "Inflammable Material", "Flexible Large Toes", 11979, Genre.JAZZ);
+            albumFromRepo.setVersion(2L);
+
+            when(mockRecordShopRepository.findById(id)).thenReturn(Optional.of(albumFromRepo));
+            when(mockRecordShopRepository.updateAlbumFieldsIfVersion(id, null, "Stiff Little Fingers", 1979, null, 2L)).thenReturn(0);
+
+            assertThrows(ConcurrentUpdateException.class, () -> recordShopService.putAlbum(albumToGive, id, RecordShopServiceImpl.ANY_VERSION));
+            verify(mockRecordShopRepository, times(RecordShopServiceImpl.MAX_UPDATE_ATTEMPTS)).findById(id);
+            verifyNoInteractions(mockEventPublisher);
+        }
+
+        @Test
+        @DisplayName("putAlbum with an expected version and every field supplied updates only at that version and gives the next one")
+        void testPutAlbumExpectedVersionCompleteBody() {
+            long id = 1L;
+            Album albumToGive = new Album("Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK);
+
+            when(mockRecordShopRepository.updateAlbumFieldsIfVersion(id, "Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK, 5L)).thenReturn(1);
+
+            Album result = recordShopService.putAlbum(albumToGive, id, 5L).getBody();
+
+            assertThat(result).isEqualTo(new Album(1L, "Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK));
+            assertThat(result.getVersion()).isEqualTo(6L);
+            verify(mockRecordShopRepository, never()).findById(id);
+            verify(mockRecordShopRepository, never()).updateAlbumFields(any(), any(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("putAlbum throws a PreconditionFailedException without updating when the album has moved past the expected version")
+        void testPutAlbumStaleExpectedVersion() {
+            long id = 1L;
+            Album albumToGive = new Album(null, "Stiff Little Fingers", 1979, null);
+            Album albumFromRepo = new Album(1L, "Inflammable Material", "Flexible Large Toes", 11979, Genre.JAZZ);
+            albumFromRepo.setVersion(6L);
+
+            when(mockRecordShopRepository.findById(id)).thenReturn(Optional.of(albumFromRepo));
+
+            assertThrows(PreconditionFailedException.class, () -> recordShopService.putAlbum(albumToGive, id, 5L));
+            verify(mockRecordShopRepository, never()).updateAlbumFieldsIfVersion(any(), any(), any(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("putAlbum throws a PreconditionFailedException when the conditional update loses to another writer")
+        void testPutAlbumExpectedVersionLosesRace() {
+            long id = 1L;
+            Album albumToGive = new Album("Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK);
+
+            when(mockRecordShopRepository.updateAlbumFieldsIfVersion(id, "Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK, 5L)).thenReturn(0);
+            when(mockRecordShopRepository.existsById(id)).thenReturn(true);
+
+            assertThrows(PreconditionFailedException.class, () -> recordShopService.putAlbum(albumToGive, id, 5L));
+            verifyNoInteractions(mockEventPublisher);
+        }
+
         @Test
         @DisplayName("putAlbum throws a BadRequestException when given a valid id for an item in the db but has an invalid body")
         void testPutAlbumValidIdInvalidBodyAndExistsInDB() {
@@ -166,9 +377,9 @@ class RecordShopServiceTests {
             Long id = null;
             Album albumToGive = new Album("Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK);
             Album expectedAlbum = new Album(1L, "Inflammable Material", "Stiff Little Fingers", 1979, Genre.ROCK);
-            ResponseEntity<Album> expectedResult = new ResponseEntity<>(HttpStatus.CREATED);
+            ResponseEntity<Album> expectedResult = new ResponseEntity<>(expectedAlbum, HttpStatus.CREATED);
 
-            when(mockRecordShopRepository.existsById(id)).thenReturn(false);
+            when(mockRecordShopRepository.save(albumToGive)).thenReturn(expectedAlbum);
 
             ResponseEntity<Album> result = recordShopService.putAlbum(albumToGive, id);
 
@@ -186,6 +397,27 @@ class RecordShopServiceTests {
             assertThrows(BadRequestException.class, () -> recordShopService.putAlbum(albumToGive, id));
         }
 
+        @Test
+        @DisplayName("putAlbum throws a ResourceNotFoundException rather than a BadRequestException when given an empty body for an id that is not in the db")
+        void testPutAlbumEmptyBodyDoesNotExistInDB() {
+            long id = 1L;
+
+            when(mockRecordShopRepository.existsById(id)).thenReturn(false);
+
+            assertThrows(ResourceNotFoundException.class, () -> recordShopService.putAlbum(new Album(), id));
+            verify(mockRecordShopRepository, never()).updateAlbumFields(any(), any(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("putAlbum throws a BadRequestException when given an empty body for an id that is in the db")
+        void testPutAlbumEmptyBodyExistsInDB() {
+            long id = 1L;
+
+            when(mockRecordShopRepository.existsById(id)).thenReturn(true);
+
+            assertThrows(BadRequestException.class, () -> recordShopService.putAlbum(new Album(), id));
+        }
+
         @Test
         @DisplayName("putAlbum throws BadRequestException when given a valid id, which exists in the db, and body but the id given and the id in the body mismatch")
         void testPutAlbumValidIdValidBodyButMismatch() {
@@ -214,6 +446,36 @@ class RecordShopServiceTests {
             assertTrue(result);
         }
 
+        @Test
+        @DisplayName("deleteAlbum with an expected version deletes only at that version")
+        void testDeleteAlbumExpectedVersion() {
+            when(mockRecordShopRepository.deleteByIdIfVersion(1L, 5L)).thenReturn(1);
+
+            assertTrue(recordShopService.deleteAlbum(1L, 5L));
+            verify(mockRecordShopRepository, never()).deleteById(1L);
+        }
+
+        @Test
+        @DisplayName("deleteAlbum with any version expected deletes the album at whatever version it's at")
+        void testDeleteAlbumAnyVersion() {
+            when(mockRecordShopRepository.existsById(1L)).thenReturn(true);
+
+            assertTrue(recordShopService.deleteAlbum(1L, RecordShopServiceImpl.ANY_VERSION));
+            verify(mockRecordShopRepository).deleteById(1L);
+            verify(mockRecordShopRepository, never()).deleteByIdIfVersion(any(), any());
+        }
+
+        @Test
+        @DisplayName("deleteAlbum throws PreconditionFailedException when the album has moved past the expected version, and ResourceNotFoundException when it's gone")
+        void testDeleteAlbumExpectedVersionMismatch() {
+            when(mockRecordShopRepository.deleteByIdIfVersion(1L, 5L)).thenReturn(0);
+            when(mockRecordShopRepository.existsById(1L)).thenReturn(true, false);
+
+            assertThrows(PreconditionFailedException.class, () -> recordShopService.deleteAlbum(1L, 5L));
+            assertThrows(ResourceNotFoundException.class, () -> recordShopService.deleteAlbum(1L, 5L));
+            verifyNoInteractions(mockEventPublisher);
+        }
+
         @Test
         @DisplayName("deleteAlbum throws ResourceNotFoundException when given a valid id that doesn't exist in the db")
         void testDeleteAlbumValidIdNotInDb() {
@@ -226,6 +488,43 @@ class RecordShopServiceTests {
     }
 
 
+    @Nested
+    @DisplayName("change event tests")
+    class ChangeEventTests {
+        @Test
+        @DisplayName("insertNewAlbum, putAlbum and deleteAlbum publish a change event for the album they wrote")
+        void testWritesPublishChangeEvents() {
+            Album album = new Album("Testing", "Red Green Cycle", 2024, Genre.POP);
+            Album createdAlbum = new Album(1L, "Testing", "Red Green Cycle", 2024, Genre.POP);
+
+            when(mockRecordShopRepository.save(album)).thenReturn(createdAlbum);
+            when(mockRecordShopRepository.updateAlbumFields(1L, "Testing", "Red Green Cycle", 2024, Genre.POP)).thenReturn(1);
+            when(mockRecordShopRepository.existsById(1L)).thenReturn(true);
+
+            recordShopService.insertNewAlbum(album);
+            recordShopService.putAlbum(new Album("Testing", "Red Green Cycle", 2024, Genre.POP), 1L);
+            recordShopService.deleteAlbum(1L);
+
+            ArgumentCaptor<AlbumChangeEvent> events = ArgumentCaptor.forClass(AlbumChangeEvent.class);
+            verify(mockEventPublisher, times(3)).publishEvent(events.capture());
+            assertThat(events.getAllValues()).extracting(AlbumChangeEvent::getType).containsExactly(
+                    AlbumChangeEvent.ChangeType.INSERTED, AlbumChangeEvent.ChangeType.UPDATED, AlbumChangeEvent.ChangeType.DELETED);
+            assertThat(events.getAllValues()).extracting(AlbumChangeEvent::getAlbumId).containsOnly(1L);
+        }
+
+        @Test
+        @DisplayName("failed writes don't publish a change event")
+        void testFailedWritesPublishNothing() {
+            when(mockRecordShopRepository.existsById(1L)).thenReturn(false);
+
+            assertThrows(ResourceNotFoundException.class, () -> recordShopService.deleteAlbum(1L));
+            assertThrows(BadRequestException.class, () -> recordShopService.insertNewAlbum(null));
+
+            verifyNoInteractions(mockEventPublisher);
+        }
+    }
+
+
     @Nested
     @DisplayName("getAllAlbumsByArtist tests")
     class GetAllAlbumsByArtistTest {
@@ -238,9 +537,9 @@ class RecordShopServiceTests {
             albums.add(new Album("The Test pt 2", "Test", 2024, Genre.POP));
             albums.add(new Album("The Test pt 3", "Test", 2024, Genre.POP));
 
-            when(mockRecordShopRepository.findByArtist(artist)).thenReturn(albums);
+            when(mockRecordShopRepository.findByArtistAndIdGreaterThanOrderByIdAsc(artist, 0L, Limit.of(100))).thenReturn(albums);
 
-            List<Album> result = recordShopService.getAllAlbumsByArtist(artist);
+            List<Album> result = recordShopService.getAllAlbumsByArtist(artist, 0L, 100);
 
             assertThat(result).isEqualTo(albums);
         }
@@ -251,9 +550,9 @@ class RecordShopServiceTests {
             String artist = "Test";
             List<Album> noAlbums = new ArrayList<>();
 
-            when(mockRecordShopRepository.findByArtist(artist)).thenReturn(noAlbums);
+            when(mockRecordShopRepository.findByArtistAndIdGreaterThanOrderByIdAsc(artist, 0L, Limit.of(100))).thenReturn(noAlbums);
 
-            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbumsByArtist(artist));
+            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbumsByArtist(artist, 0L, 100));
         }
 
         @Test
@@ -261,7 +560,7 @@ class RecordShopServiceTests {
         void testGetAllAlbumsByArtistAndNullString() {
             String artist = null;
 
-            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByArtist(artist));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByArtist(artist, 0L, 100));
         }
     }
 
@@ -278,9 +577,9 @@ class RecordShopServiceTests {
             albums.add(new Album("The Test pt 2", "Test", 2024, Genre.POP));
             albums.add(new Album("The Test pt 3", "Test", 2024, Genre.POP));
 
-            when(mockRecordShopRepository.findByReleaseYear(year)).thenReturn(albums);
+            when(mockRecordShopRepository.findByReleaseYearAndIdGreaterThanOrderByIdAsc(year, 0L, Limit.of(100))).thenReturn(albums);
 
-            List<Album> result = recordShopService.getAllAlbumsByReleaseYear(year);
+            List<Album> result = recordShopService.getAllAlbumsByReleaseYear(year, 0L, 100);
 
             assertThat(result).isEqualTo(albums);
         }
@@ -291,9 +590,9 @@ class RecordShopServiceTests {
             Integer year = 2024;
             List<Album> noAlbums = new ArrayList<>();
 
-            when(mockRecordShopRepository.findByReleaseYear(year)).thenReturn(noAlbums);
+            when(mockRecordShopRepository.findByReleaseYearAndIdGreaterThanOrderByIdAsc(year, 0L, Limit.of(100))).thenReturn(noAlbums);
 
-            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbumsByReleaseYear(year));
+            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbumsByReleaseYear(year, 0L, 100));
         }
 
         @Test
@@ -301,7 +600,7 @@ class RecordShopServiceTests {
         void testGetAllAlbumsByReleaseYearAndNullInteger() {
             Integer year = null;
 
-            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByReleaseYear(year));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByReleaseYear(year, 0L, 100));
         }
     }
 
@@ -318,9 +617,9 @@ class RecordShopServiceTests {
             albums.add(new Album("The Test pt 2", "Test", 2024, Genre.POP));
             albums.add(new Album("The Test pt 3", "Test", 2024, Genre.POP));
 
-            when(mockRecordShopRepository.findByGenre(genre)).thenReturn(albums);
+            when(mockRecordShopRepository.findByGenreAndIdGreaterThanOrderByIdAsc(genre, 0L, Limit.of(100))).thenReturn(albums);
 
-            List<Album> result = recordShopService.getAllAlbumsByGenre(genre);
+            List<Album> result = recordShopService.getAllAlbumsByGenre(genre, 0L, 100);
 
             assertThat(result).isEqualTo(albums);
         }
@@ -331,9 +630,9 @@ class RecordShopServiceTests {
             Genre genre = Genre.POP;
             List<Album> noAlbums = new ArrayList<>();
 
-            when(mockRecordShopRepository.findByGenre(genre)).thenReturn(noAlbums);
+            when(mockRecordShopRepository.findByGenreAndIdGreaterThanOrderByIdAsc(genre, 0L, Limit.of(100))).thenReturn(noAlbums);
 
-            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbumsByGenre(genre));
+            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbumsByGenre(genre, 0L, 100));
         }
 
         @Test
@@ -341,7 +640,7 @@ class RecordShopServiceTests {
         void testGetAllAlbumsByGenreAndNullGenre() {
             Genre genre = null;
 
-            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByGenre(genre));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByGenre(genre, 0L, 100));
         }
     }
 
@@ -356,9 +655,9 @@ class RecordShopServiceTests {
             List<Album> albums = new ArrayList<>();
             albums.add(new Album("The Test", "Test", 2024, Genre.POP));
 
-            when(mockRecordShopRepository.findByAlbumName(name)).thenReturn(albums);
+            when(mockRecordShopRepository.findByAlbumNameAndIdGreaterThanOrderByIdAsc(name, 0L, Limit.of(100))).thenReturn(albums);
 
-            List<Album> result = recordShopService.getAllAlbumsByName(name);
+            List<Album> result = recordShopService.getAllAlbumsByName(name, 0L, 100);
 
             assertThat(result).isEqualTo(albums);
         }
@@ -369,9 +668,9 @@ class RecordShopServiceTests {
             String name = "The Test";
             List<Album> noAlbums = new ArrayList<>();
 
-            when(mockRecordShopRepository.findByAlbumName(name)).thenReturn(noAlbums);
+            when(mockRecordShopRepository.findByAlbumNameAndIdGreaterThanOrderByIdAsc(name, 0L, Limit.of(100))).thenReturn(noAlbums);
 
-            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbumsByName(name));
+            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbumsByName(name, 0L, 100));
         }
 
         @Test
@@ -379,7 +678,7 @@ class RecordShopServiceTests {
         void testGetAllAlbumsByNameAndNullString() {
             String name = null;
 
-            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByName(name));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByName(name, 0L, 100));
         }
     }
 
@@ -388,15 +687,8 @@ class RecordShopServiceTests {
     @DisplayName("getAllAlbumsByMultipleParams tests")
     class GetAllAlbumsByMultipleParamsTest {
         @Test
-        @DisplayName("getAllAlbumsByMultipleParams can handle requests with all parameters")
+        @DisplayName("getAllAlbumsByMultipleParams can handle requests with all parameters in a single query")
         void testGetAllAlbumsByMultipleParamsAllParams() {
-            List<Album> initialList = new ArrayList<>(); //List with expected result and then albums with one value changed each that should be removed
-                initialList.add(new Album(1L, "Test Album", "Test Name", 2024, Genre.POP));
-                initialList.add(new Album(2L, "Test Album", "Other Name", 2024, Genre.POP));
-                initialList.add(new Album(1L, "Other Album", "Test Name", 2024, Genre.POP));
-                initialList.add(new Album(1L, "Test Album", "Test Name", 4202, Genre.POP));
-                initialList.add(new Album(1L, "Test Album", "Test Name", 2024, Genre.ROCK));
-
             List<Album> expectedList = new ArrayList<>();
                 expectedList.add(new Album(1L, "Test Album", "Test Name", 2024, Genre.POP));
 
@@ -406,51 +698,30 @@ class RecordShopServiceTests {
                 parameters.put("genre", "Pop");
                 parameters.put("albumName", "Test Album");
 
-            when(mockRecordShopRepository.findByArtist("Test Name")).thenAnswer(answer -> {
-                initialList.remove(new Album(2L, "Test Album", "Other Name", 2024, Genre.POP));
-                return initialList;});
-            when(mockRecordShopRepository.findByReleaseYear(2024)).thenAnswer(answer -> {
-                initialList.remove(new Album(1L, "Test Album", "Test Name", 4202, Genre.POP));
-                return initialList;});
-            when(mockRecordShopRepository.findByGenre(Genre.POP)).thenAnswer(answer -> {
-                initialList.remove(new Album(1L, "Test Album", "Test Name", 2024, Genre.ROCK));
-                return initialList;});
-            when(mockRecordShopRepository.findByAlbumName("Test Album")).thenAnswer(answer -> {
-                initialList.remove(new Album(1L, "Other Album", "Test Name", 2024, Genre.POP));
-                return initialList;});
-
-            List<Album> result = recordShopService.getAllAlbumsByMultipleParams(parameters);
+            when(mockRecordShopRepository.findBy(ArgumentMatchers.<Specification<Album>>any(), any())).thenReturn(expectedList);
+
+            List<Album> result = recordShopService.getAllAlbumsByMultipleParams(parameters, 0L, 100);
 
             assertThat(result).isEqualTo(expectedList);
+            verify(mockRecordShopRepository, times(1)).findBy(ArgumentMatchers.<Specification<Album>>any(), any());
+            verifyNoMoreInteractions(mockRecordShopRepository);
         }
 
         @Test
         @DisplayName("getAllAlbumsByMultipleParams can handle requests with two parameters")
         void testGetAllAlbumsByMultipleParamsSomeParams() {
-            List<Album> initialList = new ArrayList<>();
-                initialList.add(new Album(1L, "Test Album", "Test Name", 2024, Genre.POP));
-                initialList.add(new Album(2L, "Test Album", "Other Name", 2024, Genre.POP));
-                initialList.add(new Album(1L, "Other Album", "Test Name", 2024, Genre.POP));
-                initialList.add(new Album(1L, "Test Album", "Test Name", 4202, Genre.POP));
-                initialList.add(new Album(1L, "Test Album", "Test Name", 2024, Genre.ROCK));
-
             List<Album> expectedList = new ArrayList<>();
                 expectedList.add(new Album(1L, "Test Album", "Test Name", 2024, Genre.POP));
-                expectedList.add(new Album(1L, "Test Album", "Test Name", 4202, Genre.POP));
-                expectedList.add(new Album(1L, "Test Album", "Test Name", 2024, Genre.ROCK));
+                expectedList.add(new Album(3L, "Test Album", "Test Name", 4202, Genre.POP));
+                expectedList.add(new Album(4L, "Test Album", "Test Name", 2024, Genre.ROCK));
 
             Map<String, String> parameters = new HashMap<String, String>();
                 parameters.put("artist", "Test Name");
                 parameters.put("albumName", "Test Album");
 
-            when(mockRecordShopRepository.findByArtist("Test Name")).thenAnswer(answer -> {
-                initialList.remove(new Album(2L, "Test Album", "Other Name", 2024, Genre.POP));
-                return initialList;});
-            when(mockRecordShopRepository.findByAlbumName("Test Album")).thenAnswer(answer -> {
-                initialList.remove(new Album(1L, "Other Album", "Test Name", 2024, Genre.POP));
-                return initialList;});
+            when(mockRecordShopRepository.findBy(ArgumentMatchers.<Specification<Album>>any(), any())).thenReturn(expectedList);
 
-            List<Album> result = recordShopService.getAllAlbumsByMultipleParams(parameters);
+            List<Album> result = recordShopService.getAllAlbumsByMultipleParams(parameters, 0L, 100);
 
             assertThat(result).isEqualTo(expectedList);
         }
@@ -462,7 +733,22 @@ class RecordShopServiceTests {
             parameters.put("test", "Test");
             parameters.put("otherTest", "Test");
 
-            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByMultipleParams(parameters));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByMultipleParams(parameters, 0L, 100));
+        }
+
+        @Test
+        @DisplayName("getAllAlbumsByMultipleParams throws BadRequestException when given a release year or genre that can't be parsed")
+        void testGetAllAlbumsByMultipleParamsBadValues() {
+            Map<String, String> badYear = new HashMap<String, String>();
+            badYear.put("artist", "Test Name");
+            badYear.put("releaseYear", "nineteen seventy nine");
+
+            Map<String, String> badGenre = new HashMap<String, String>();
+            badGenre.put("artist", "Test Name");
+            badGenre.put("genre", "genrecore");
+
+            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByMultipleParams(badYear, 0L, 100));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByMultipleParams(badGenre, 0L, 100));
         }
 
         @Test
@@ -472,10 +758,162 @@ class RecordShopServiceTests {
 
             Map<String, String> parameters = new HashMap<String, String>();
             parameters.put("artist", "Test Name");
+            parameters.put("releaseYear", "1979");
+
+            when(mockRecordShopRepository.findBy(ArgumentMatchers.<Specification<Album>>any(), any())).thenReturn(emptyList);
+
+            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbumsByMultipleParams(parameters, 0L, 100));
+        }
+
+        @Test
+        @DisplayName("getAllAlbumsByMultipleParams is answered from the catalog index without the repository once it is loaded")
+        void testGetAllAlbumsByMultipleParamsUsesCatalogIndex() {
+            CatalogIndex mockCatalogIndex = mock(CatalogIndex.class);
+            List<Album> expectedList = List.of(new Album(1L, "Voulez-Vous", "ABBA", 1979, Genre.POP));
+
+            Map<String, String> parameters = new HashMap<String, String>();
+            parameters.put("genre", "Pop");
+            parameters.put("releaseYear", "1979");
+
+            when(mockCatalogIndexProvider.getIfAvailable()).thenReturn(mockCatalogIndex);
+            when(mockCatalogIndex.isReady()).thenReturn(true);
+            when(mockCatalogIndex.find(null, 1979, Genre.POP, null, 0L, 100)).thenReturn(expectedList);
+
+            List<Album> result = recordShopService.getAllAlbumsByMultipleParams(parameters, 0L, 100);
+
+            assertThat(result).isEqualTo(expectedList);
+            verifyNoInteractions(mockRecordShopRepository);
+        }
+
+        @Test
+        @DisplayName("searchAlbums returns the search index's ranked results")
+        void testSearchAlbums() {
+            AlbumSearchIndex mockAlbumSearchIndex = mock(AlbumSearchIndex.class);
+            List<Album> expectedList = List.of(new Album(1L, "Voulez-Vous", "ABBA", 1979, Genre.POP));
+
+            when(mockAlbumSearchIndexProvider.getIfAvailable()).thenReturn(mockAlbumSearchIndex);
+            when(mockAlbumSearchIndex.isReady()).thenReturn(true);
+            when(mockAlbumSearchIndex.search("voul", 20)).thenReturn(expectedList);
+
+            List<Album> result = recordShopService.searchAlbums("voul", 20);
+
+            assertThat(result).isEqualTo(expectedList);
+            verifyNoInteractions(mockRecordShopRepository);
+        }
+
+        @Test
+        @DisplayName("searchAlbums throws BadRequestException for a blank query and ResourceNotFoundException when the search index is disabled")
+        void testSearchAlbumsErrors() {
+            assertThrows(BadRequestException.class, () -> recordShopService.searchAlbums(" ", 20));
+            assertThrows(ResourceNotFoundException.class, () -> recordShopService.searchAlbums("voul", 20));
+        }
+
+        @Test
+        @DisplayName("getFacets throws ResourceNotFoundException when the catalog index is disabled")
+        void testGetFacetsWithoutCatalogIndex() {
+            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getFacets(new HashMap<>()));
+        }
+    }
+
+
+    @Nested
+    @DisplayName("getAlbumFields tests")
+    class GetAlbumFieldsTests {
+        @Test
+        @DisplayName("getAlbumFields selects id followed by the requested fields, without duplicates")
+        void testGetAlbumFields() {
+            List<Map<String, Object>> rows = List.of(Map.of("id", 1L, "albumName", "Voulez-Vous"));
+
+            when(mockRecordShopRepository.findFieldsBy(ArgumentMatchers.<Specification<Album>>any(), any(), any(Integer.class))).thenReturn(rows);
+
+            List<Map<String, Object>> result = recordShopService.getAlbumFields("albumName, id,albumName", new HashMap<>(), 0L, 50);
+
+            assertThat(result).isEqualTo(rows);
+            verify(mockRecordShopRepository).findFieldsBy(ArgumentMatchers.<Specification<Album>>any(), eq(List.of("id", "albumName")), eq(50));
+        }
+
+        @Test
+        @DisplayName("getAlbumFields throws BadRequestException for missing or unknown fields and unknown filters")
+        void testGetAlbumFieldsBadRequest() {
+            assertThrows(BadRequestException.class, () -> recordShopService.getAlbumFields(" ", new HashMap<>(), 0L, 50));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAlbumFields("albumName,price", new HashMap<>(), 0L, 50));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAlbumFields("albumName", Map.of("colour", "red"), 0L, 50));
+            verifyNoInteractions(mockRecordShopRepository);
+        }
+
+        @Test
+        @DisplayName("getAlbumFieldsById throws ResourceNotFoundException when there is no album with the id")
+        void testGetAlbumFieldsByIdNotFound() {
+            when(mockRecordShopRepository.findFieldsBy(ArgumentMatchers.<Specification<Album>>any(), any(), any(Integer.class))).thenReturn(List.of());
+
+            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAlbumFieldsById(404L, "albumName"));
+        }
+    }
 
-            when(mockRecordShopRepository.findByArtist("Test Name")).thenReturn(emptyList);
+    @Nested
+    @DisplayName("getAlbumsByIds tests")
+    class GetAlbumsByIdsTests {
+        @Test
+        @DisplayName("getAlbumsByIds fetches every id in one query and returns the albums in the order asked for, listing missing ids")
+        void testGetAlbumsByIds() {
+            Album first = new Album(1L, "Black Sabbath", "Black Sabbath", 1970, Genre.METAL);
+            Album third = new Album(3L, "Mm..Food", "MF DOOM", 2004, Genre.HIPHOP);
+
+            when(mockRecordShopRepository.findAllById(List.of(3L, 99L, 1L))).thenReturn(List.of(first, third));
+
+            AlbumLookupResult result = recordShopService.getAlbumsByIds("3, 99,1,3");
 
-            assertThrows(ResourceNotFoundException.class, () -> recordShopService.getAllAlbumsByMultipleParams(parameters));
+            assertThat(result.getAlbums()).containsExactly(third, first);
+            assertThat(result.getMissingIds()).containsExactly(99L);
+            verify(mockRecordShopRepository, times(1)).findAllById(any());
+            verify(mockRecordShopRepository, never()).findById(any());
+        }
+
+        @Test
+        @DisplayName("getAlbumsByIds throws BadRequestException for no ids, an invalid id or too many ids")
+        void testGetAlbumsByIdsBadRequest() {
+            StringJoiner tooMany = new StringJoiner(",");
+            for (int i = 1; i <= RecordShopServiceImpl.MAX_LOOKUP_SIZE + 1; i++) tooMany.add(Integer.toString(i));
+
+            assertThrows(BadRequestException.class, () -> recordShopService.getAlbumsByIds(" , "));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAlbumsByIds("1,two"));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAlbumsByIds(tooMany.toString()));
+            verifyNoInteractions(mockRecordShopRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("pagination tests")
+    class PaginationTests {
+        @Test
+        @DisplayName("getAllAlbums seeks past the given cursor with the given limit")
+        void testGetAllAlbumsAfterCursor() {
+            List<Album> albumList = new ArrayList<>();
+            albumList.add(new Album(51L, "Voulez-Vous", "ABBA", 1979, Genre.POP));
+
+            when(mockRecordShopRepository.findByIdGreaterThanOrderByIdAsc(50L, Limit.of(10))).thenReturn(albumList);
+
+            List<Album> result = recordShopService.getAllAlbums(50L, 10);
+
+            assertThat(result).isEqualTo(albumList);
+        }
+
+        @Test
+        @DisplayName("getAllAlbums returns an empty page rather than throwing once a cursor reaches the end of the results")
+        void testGetAllAlbumsPastLastPage() {
+            when(mockRecordShopRepository.findByIdGreaterThanOrderByIdAsc(50L, Limit.of(10))).thenReturn(new ArrayList<>());
+
+            List<Album> result = recordShopService.getAllAlbums(50L, 10);
+
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        @DisplayName("paged methods throw BadRequestException when given a negative cursor or a limit out of bounds")
+        void testPageBounds() {
+            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbums(-1L, 10));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbums(0L, 0));
+            assertThrows(BadRequestException.class, () -> recordShopService.getAllAlbumsByArtist("Test", 0L, RecordShopServiceImpl.MAX_PAGE_SIZE + 1));
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,173 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class StockAdjustmentBufferTests {
+
+    @Autowired
+    RecordShopRepository recordShopRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @TempDir
+    Path journalDirectory;
+
+    private long albumId;
+
+    @BeforeEach
+    public void seedStock() {
+        albumId = recordShopRepository.save(new Album("Till Test", "Stock Adjustments", 2024, Genre.JAZZ)).getId();
+        jdbcTemplate.update("insert into stock (album_id, number_in_stock, price_pence) values (?, 100, 999)", albumId);
+    }
+
+    @AfterEach
+    public void removeStock() {
+        jdbcTemplate.update("delete from album where id = ?", albumId);
+        jdbcTemplate.update("delete from stock_journal_checkpoint");
+    }
+
+    // Started by hand, with triggers that never fire on their own, so each test decides when to flush
+    private StockAdjustmentBuffer startBuffer(boolean journalEnabled) throws Exception {
+        StockAdjustmentBuffer buffer = new StockAdjustmentBuffer();
+        buffer.jdbcTemplate = jdbcTemplate;
+        buffer.transactionTemplate = transactionTemplate;
+        buffer.meterRegistry = new SimpleMeterRegistry();
+        buffer.flushSize = Integer.MAX_VALUE;
+        buffer.flushIntervalMillis = 3_600_000;
+        buffer.journalEnabled = journalEnabled;
+        buffer.journalDirectory = journalDirectory.toString();
+        buffer.start();
+        return buffer;
+    }
+
+    private int stockInTable() {
+        return jdbcTemplate.queryForObject("select number_in_stock from stock where album_id = ?", Integer.class, albumId);
+    }
+
+    @Test
+    @DisplayName("Adjustments are held in memory and written as one net delta per album")
+    public void testAdjustmentsCoalesced() throws Exception {
+        StockAdjustmentBuffer buffer = startBuffer(false);
+        for (int i = 0; i < 30; i++) buffer.add(albumId, -1);
+        for (int i = 0; i < 10; i++) buffer.add(albumId, 1);
+
+        assertThat(stockInTable()).isEqualTo(100);
+        assertThat(buffer.pendingCount()).isEqualTo(40);
+        assertThat(buffer.pendingDelta(albumId)).isEqualTo(-20);
+
+        buffer.flush();
+
+        assertThat(stockInTable()).isEqualTo(80);
+        assertThat(buffer.pendingCount()).isZero();
+        buffer.stop();
+    }
+
+    @Test
+    @DisplayName("An adjustment below zero leaves the count at zero and counts the copies that weren't there")
+    public void testClampedAdjustmentCounted() throws Exception {
+        StockAdjustmentBuffer buffer = startBuffer(false);
+        buffer.add(albumId, -130);
+        buffer.flush();
+
+        assertThat(stockInTable()).isZero();
+        assertThat(buffer.meterRegistry.counter("recordshop.stock.adjustments.clamped").count()).isEqualTo(30);
+
+        buffer.add(albumId, 5);
+        buffer.add(albumId, -5);
+        buffer.add(albumId, -2);
+        buffer.flush();
+
+        assertThat(stockInTable()).isZero();
+        assertThat(buffer.meterRegistry.counter("recordshop.stock.adjustments.clamped").count()).isEqualTo(32);
+        buffer.stop();
+    }
+
+    @Test
+    @DisplayName("A flush is triggered once flush-size adjustments are waiting")
+    public void testSizeTrigger() throws Exception {
+        StockAdjustmentBuffer buffer = startBuffer(false);
+        buffer.flushSize = 5;
+        for (int i = 0; i < 5; i++) buffer.add(albumId, -1);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stockInTable() != 95 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+        assertThat(stockInTable()).isEqualTo(95);
+        buffer.stop();
+    }
+
+    @Test
+    @DisplayName("Journalled adjustments survive a crash and are replayed exactly once")
+    public void testJournalReplay() throws Exception {
+        StockAdjustmentBuffer crashed = startBuffer(true);
+        crashed.add(albumId, -7);
+        crashed.add(albumId, 2);
+        // No stop(): the process dies with the adjustments only in memory and in the journal
+
+        startBuffer(true).stop();
+        assertThat(stockInTable()).isEqualTo(95);
+
+        startBuffer(true).stop();
+        assertThat(stockInTable()).isEqualTo(95);
+    }
+
+    @Test
+    @DisplayName("Only adjustments made after the last flush are replayed")
+    public void testCheckpointSkipsAppliedSegments() throws Exception {
+        StockAdjustmentBuffer buffer = startBuffer(true);
+        buffer.add(albumId, -10);
+        buffer.flush();
+        buffer.add(albumId, -1);
+        // Crash with the second adjustment journalled but not flushed
+
+        startBuffer(true).stop();
+
+        assertThat(stockInTable()).isEqualTo(89);
+    }
+
+    @Test
+    @DisplayName("Adjustments journalled by many tills at once, sharing forces, are all replayed")
+    public void testConcurrentJournalReplay() throws Exception {
+        StockAdjustmentBuffer crashed = startBuffer(true);
+        ExecutorService tills = Executors.newFixedThreadPool(8);
+        List<Future<?>> sales = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            sales.add(tills.submit(() -> crashed.add(albumId, -1)));
+        }
+        for (Future<?> sale : sales) sale.get(30, TimeUnit.SECONDS);
+        tills.shutdown();
+
+        startBuffer(true).stop();
+
+        assertThat(stockInTable()).isEqualTo(20);
+    }
+}
@@ -0,0 +1,108 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.exception.OutOfStockException;
+import com.northcoders.recordshop.model.Album;
+import com.northcoders.recordshop.model.Genre;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Release-day drop: many buyers reserving single copies of one hot album at once.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class StockConcurrencyTests {
+    private static final Logger log = LoggerFactory.getLogger(StockConcurrencyTests.class);
+    private static final int COPIES = 5000;
+    private static final int BUYERS = 64;
+
+    @Autowired
+    StockService stockService;
+
+    @Autowired
+    RecordShopRepository recordShopRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private long albumId;
+
+    @BeforeEach
+    public void seedHotAlbum() {
+        albumId = recordShopRepository.save(new Album("Hot Release", "Stress Test", 2024, Genre.POP)).getId();
+        jdbcTemplate.update("insert into stock (album_id, number_in_stock, price_pence) values (?, ?, 1299)", albumId, COPIES);
+    }
+
+    @AfterEach
+    public void removeHotAlbum() {
+        // Takes the stock row with it
+        jdbcTemplate.update("delete from album where id = ?", albumId);
+    }
+
+    @Test
+    @DisplayName("Concurrent reservations on one album never sell more copies than were in stock")
+    public void testNoOverselling() throws Exception {
+        // Copies held at the end (never goes down), and every successful reserve call including the released ones
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger reservations = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService buyers = Executors.newFixedThreadPool(BUYERS);
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            results.add(buyers.submit(() -> {
+                start.await();
+                // Each buyer keeps going until the album sells out, releasing every tenth copy it reserves back.
+                // Counted per buyer, so the album always drains by nine copies in every ten reservations.
+                int reservedByBuyer = 0;
+                while (true) {
+                    try {
+                        stockService.reserve(albumId, 1);
+                    } catch (OutOfStockException e) {
+                        refused.incrementAndGet();
+                        return null;
+                    }
+                    reservations.incrementAndGet();
+                    if (++reservedByBuyer % 10 == 0) {
+                        stockService.release(albumId, 1);
+                    } else {
+                        reserved.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        buyers.shutdown();
+
+        assertThat(reserved.get()).isEqualTo(COPIES);
+        assertThat(refused.get()).isEqualTo(BUYERS);
+        assertThat(stockService.getStock(albumId).getAvailable()).isZero();
+        assertThat(jdbcTemplate.queryForObject("select number_in_stock from stock where album_id = ?", Integer.class, albumId)).isZero();
+
+        log.info("Made {} reservations ({} copies kept) of one album with {} buyers in {} s ({} reservations/s)",
+                reservations.get(), COPIES, BUYERS, String.format("%.3f", seconds), String.format("%.0f", reservations.get() / seconds));
+    }
+}
@@ -0,0 +1,151 @@
+package com.northcoders.recordshop.service;
+
+import com.northcoders.recordshop.exception.BadRequestException;
+import com.northcoders.recordshop.exception.OutOfStockException;
+import com.northcoders.recordshop.exception.ResourceNotFoundException;
+import com.northcoders.recordshop.model.Stock;
+import com.northcoders.recordshop.repository.RecordShopRepository;
+import com.northcoders.recordshop.repository.StockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class StockServiceTests {
+
+    @Mock
+    StockRepository mockStockRepository;
+
+    @Mock
+    RecordShopRepository mockRecordShopRepository;
+
+    @Mock
+    TransactionTemplate mockTransactionTemplate;
+
+    @Mock
+    StockAdjustmentBuffer mockStockAdjustmentBuffer;
+
+    @InjectMocks
+    StockServiceImpl stockService;
+
+    Stock stock = new Stock(1L, 50, 999);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        when(mockTransactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+        when(mockStockRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(stock));
+        when(mockStockRepository.findById(1L)).thenReturn(Optional.of(stock));
+    }
+
+    @Test
+    @DisplayName("reserve leases copies from the table in blocks rather than once per reservation")
+    public void testReserveLeasesInBlocks() {
+        for (int i = 0; i < stockService.leaseSize; i++) {
+            stockService.reserve(1L, 1);
+        }
+
+        verify(mockStockRepository, times(1)).findByIdForUpdate(1L);
+        assertThat(stock.getNumberInStock()).isEqualTo(50 - stockService.leaseSize);
+        assertThat(stockService.getStock(1L).getAvailable()).isEqualTo(50 - stockService.leaseSize);
+    }
+
+    @Test
+    @DisplayName("reserve throws OutOfStockException once every copy is reserved, without overselling")
+    public void testReserveOutOfStock() {
+        for (int i = 0; i < 50; i++) {
+            stockService.reserve(1L, 1);
+        }
+
+        assertThrows(OutOfStockException.class, () -> stockService.reserve(1L, 1));
+        assertThat(stockService.getStock(1L).getAvailable()).isZero();
+    }
+
+    @Test
+    @DisplayName("release returns copies for the next buyer, but never more than were reserved")
+    public void testRelease() {
+        stockService.reserve(1L, 3);
+        stockService.release(1L, 2);
+
+        assertThat(stockService.getStock(1L).getAvailable()).isEqualTo(49);
+        assertThrows(BadRequestException.class, () -> stockService.release(1L, 2));
+        assertThrows(BadRequestException.class, () -> stockService.release(2L, 1));
+    }
+
+    @Test
+    @DisplayName("reserve throws ResourceNotFoundException for an album with no stock row and BadRequestException for a quantity under 1")
+    public void testReserveBadRequests() {
+        when(mockStockRepository.findByIdForUpdate(2L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> stockService.reserve(2L, 1));
+        assertThrows(BadRequestException.class, () -> stockService.reserve(1L, 0));
+    }
+
+    @Test
+    @DisplayName("restock creates the stock row for an album that has none, and 404s for an album that doesn't exist")
+    public void testRestock() {
+        when(mockStockRepository.addStock(2L, 10, 1299)).thenReturn(0);
+        when(mockRecordShopRepository.existsById(2L)).thenReturn(true);
+        when(mockStockRepository.findById(2L)).thenReturn(Optional.of(new Stock(2L, 10, 1299)));
+
+        assertThat(stockService.restock(2L, 10, 1299).getAvailable()).isEqualTo(10);
+        verify(mockStockRepository).save(any(Stock.class));
+
+        assertThrows(ResourceNotFoundException.class, () -> stockService.restock(3L, 10, null));
+    }
+
+    @Test
+    @DisplayName("returnLeases gives unreserved leased copies back to the table")
+    public void testReturnLeases() {
+        stockService.reserve(1L, 1);
+
+        stockService.returnLeases();
+
+        verify(mockStockRepository).addStock(1L, stockService.leaseSize - 1, null);
+    }
+
+    @Test
+    @DisplayName("adjust hands the delta to the write-behind buffer, and getStock counts deltas not yet written")
+    public void testAdjust() {
+        stockService.adjust(1L, -3);
+        when(mockStockAdjustmentBuffer.pendingDelta(1L)).thenReturn(-3L);
+
+        verify(mockStockAdjustmentBuffer).add(1L, -3);
+        assertThat(stockService.getStock(1L).getAvailable()).isEqualTo(47);
+        assertThrows(BadRequestException.class, () -> stockService.adjust(1L, 0));
+    }
+
+    @Test
+    @DisplayName("A till sale takes leased copies first, and copies the buffer has yet to take out of the table can't be leased")
+    public void testReserveAndAdjustDontOversell() {
+        stockService.reserve(1L, 1);
+        stockService.adjust(1L, -25);
+
+        // 19 copies were waiting in the pool, so only 6 are left for the buffer to take out of the table's 30
+        verify(mockStockAdjustmentBuffer).add(1L, -6);
+        when(mockStockAdjustmentBuffer.pendingDelta(1L)).thenReturn(-6L);
+        assertThat(stockService.getStock(1L).getAvailable()).isEqualTo(24);
+
+        assertThrows(OutOfStockException.class, () -> stockService.reserve(1L, 25));
+        stockService.reserve(1L, 24);
+        assertThat(stock.getNumberInStock()).isEqualTo(6);
+        assertThat(stockService.getStock(1L).getAvailable()).isZero();
+    }
+}